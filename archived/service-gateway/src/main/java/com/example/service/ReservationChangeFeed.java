@@ -0,0 +1,150 @@
+package com.example.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.bson.BsonDocument;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Streams reservation changes to a named cursor, resuming after the last change that
+ * cursor acknowledged. The feed never checkpoints on its own: a change it has emitted
+ * may still sit in a transport buffer when the consumer goes away, so only the consumer
+ * knows what it has processed. Delivery is at least once: every change after the last
+ * acknowledged one is sent again when the consumer reconnects.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+class ReservationChangeFeed {
+
+	private final ReservationChangeSource source;
+
+	private final ResumeTokenStore resumeTokens;
+
+	Flux<ReservationChange> changes(String cursor, String resumeAfter) {
+		var start = resumeAfter != null ? Mono.just(resumeAfter) : this.resumeTokens.load(cursor);
+		return start
+			.map(ResumeAfter::new)
+			.defaultIfEmpty(new ResumeAfter(null))
+			.flatMapMany(position -> this.source.changes(position.token));
+	}
+
+	/**
+	 * Records that the consumer of {@code cursor} has processed every change up to and
+	 * including the one with this resume token.
+	 */
+	Mono<Void> acknowledge(String cursor, String resumeToken) {
+		return this.resumeTokens
+			.save(cursor, resumeToken)
+			.doOnError(error -> log.warn("could not checkpoint cursor " + cursor + ": " + error.getMessage()));
+	}
+
+	@RequiredArgsConstructor
+	private static class ResumeAfter {
+
+		private final String token;
+	}
+}
+
+interface ReservationChangeSource {
+
+	Flux<ReservationChange> changes(String resumeAfter);
+}
+
+interface ResumeTokenStore {
+
+	Mono<String> load(String cursor);
+
+	Mono<Void> save(String cursor, String token);
+}
+
+@Component
+@RequiredArgsConstructor
+class MongoReservationChangeSource implements ReservationChangeSource {
+
+	private final ReactiveMongoTemplate template;
+
+	@Override
+	public Flux<ReservationChange> changes(String resumeAfter) {
+		var options = ChangeStreamOptions.builder().returnFullDocumentOnUpdate();
+		if (resumeAfter != null) {
+			options.resumeAfter(BsonDocument.parse(resumeAfter));
+		}
+		return this.template
+			.changeStream(this.template.getCollectionName(Reservation.class), options.build(), Reservation.class)
+			.map(this::toChange);
+	}
+
+	private ReservationChange toChange(ChangeStreamEvent<Reservation> event) {
+		var key = event.getRaw() != null && event.getRaw().getDocumentKey() != null
+			? event.getRaw().getDocumentKey().get("_id")
+			: null;
+		var id = key == null ? null : key.isObjectId() ? key.asObjectId().getValue().toHexString() : key.asString().getValue();
+		var operation = event.getOperationType() != null ? event.getOperationType().getValue() : "unknown";
+		return new ReservationChange(operation, id, event.getBody(), event.getResumeToken().asDocument().toJson());
+	}
+}
+
+@Component
+@RequiredArgsConstructor
+class MongoResumeTokenStore implements ResumeTokenStore {
+
+	private final ReactiveMongoTemplate template;
+
+	@Override
+	public Mono<String> load(String cursor) {
+		return this.template.findById(cursor, ReservationChangeCursor.class).map(ReservationChangeCursor::getResumeToken);
+	}
+
+	@Override
+	public Mono<Void> save(String cursor, String token) {
+		return this.template.save(new ReservationChangeCursor(cursor, token)).then();
+	}
+}
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+class ReservationChangesRequest {
+	private String cursor;
+	private String resumeAfter;
+}
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+class ReservationChangesAck {
+	private String cursor;
+	private String resumeToken;
+}
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+class ReservationChange {
+	private String operation;
+	private String id;
+	private Reservation reservation;
+	private String resumeToken;
+}
+
+@Document
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+class ReservationChangeCursor {
+
+	@Id
+	private String cursor;
+	private String resumeToken;
+}
@@ -3,6 +3,7 @@ package com.example.service;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
@@ -17,6 +18,7 @@ import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.rsocket.RSocketSecurity;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
 import org.springframework.security.core.userdetails.MapReactiveUserDetailsService;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.rsocket.core.PayloadSocketAcceptorInterceptor;
@@ -30,6 +32,7 @@ import org.springframework.web.reactive.socket.WebSocketHandler;
 import org.springframework.web.reactive.socket.WebSocketMessage;
 import org.springframework.web.reactive.socket.server.support.WebSocketHandlerAdapter;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.time.Duration;
 import java.time.Instant;
@@ -80,6 +83,8 @@ public class ServiceApplication {
 			.authorizePayload(auth ->
 				auth
 					.route("greetings").authenticated()
+					.route("reservations.changes").authenticated()
+					.route("reservations.changes.ack").authenticated()
 					.anyExchange().permitAll()
 			)
 			.build();
@@ -135,6 +140,30 @@ class GreetingService {
 
 }
 
+@Controller
+@RequiredArgsConstructor
+class ReservationChangesController {
+
+	private final ReservationChangeFeed feed;
+
+	@MessageMapping("reservations.changes")
+	Flux<ReservationChange> changes(ReservationChangesRequest request) {
+		return clientCursor(request.getCursor()).flatMapMany(clientCursor -> feed.changes(clientCursor, request.getResumeAfter()));
+	}
+
+	@MessageMapping("reservations.changes.ack")
+	Mono<Void> acknowledge(ReservationChangesAck ack) {
+		return clientCursor(ack.getCursor()).flatMap(clientCursor -> feed.acknowledge(clientCursor, ack.getResumeToken()));
+	}
+
+	private static Mono<String> clientCursor(String cursor) {
+		var name = cursor != null ? cursor : "default";
+		return ReactiveSecurityContextHolder
+			.getContext()
+			.map(context -> context.getAuthentication().getName() + "/" + name);
+	}
+}
+
 interface ReservationRepository extends ReactiveCrudRepository<Reservation, String> {
 }
 
@@ -0,0 +1,122 @@
+package com.example.service;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * {@link MongoReservationChangeSource} and {@link MongoResumeTokenStore} against a real
+ * single-node replica set, since change streams and their resume tokens only exist
+ * there. Skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class MongoReservationChangesTests {
+
+	@Container
+	private static final MongoDBContainer mongo = new MongoDBContainer("mongo:4.2");
+
+	private static MongoClient client;
+
+	private static ReactiveMongoTemplate template;
+
+	private final ReservationChangeFeed feed = new ReservationChangeFeed(
+		new MongoReservationChangeSource(template), new MongoResumeTokenStore(template));
+
+	@BeforeAll
+	static void connect() {
+		client = MongoClients.create(mongo.getReplicaSetUrl());
+		template = new ReactiveMongoTemplate(client, "test");
+	}
+
+	@AfterAll
+	static void disconnect() {
+		client.close();
+	}
+
+	@BeforeEach
+	void clear() {
+		template.dropCollection(Reservation.class).then(template.dropCollection(ReservationChangeCursor.class)).block();
+		template.createCollection(Reservation.class).block();
+	}
+
+	@Test
+	void resumesAfterTheAcknowledgedChange() {
+		var changes = new ArrayList<ReservationChange>();
+		StepVerifier
+			.create(feed.changes("jlong/dashboard", null).take(3))
+			.recordWith(() -> changes)
+			.then(() -> afterTheStreamOpens(template.insertAll(List.of(
+				new Reservation("a", "Josh"), new Reservation("b", "Mario"), new Reservation("c", "Olga"))).then())
+				.block())
+			.expectNextCount(3)
+			.expectComplete()
+			.verify(Duration.ofSeconds(30));
+		assertThat(changes).extracting(ReservationChange::getOperation).containsExactly("insert", "insert", "insert");
+		assertThat(changes).extracting(ReservationChange::getId).containsExactly("a", "b", "c");
+		assertThat(changes).extracting(ReservationChange::getResumeToken).doesNotContainNull().doesNotHaveDuplicates();
+
+		feed.acknowledge("jlong/dashboard", changes.get(1).getResumeToken()).block();
+		assertThat(new MongoResumeTokenStore(template).load("jlong/dashboard").block())
+			.isEqualTo(changes.get(1).getResumeToken());
+
+		StepVerifier
+			.create(feed.changes("jlong/dashboard", null).take(1))
+			.assertNext(change -> {
+				assertThat(change.getId()).isEqualTo("c");
+				assertThat(change.getResumeToken()).isEqualTo(changes.get(2).getResumeToken());
+			})
+			.expectComplete()
+			.verify(Duration.ofSeconds(30));
+	}
+
+	@Test
+	void carriesTheWholeReservationOnUpdate() {
+		template.insert(new Reservation("a", "Josh")).block();
+		StepVerifier
+			.create(feed.changes("jlong/dashboard", null).take(1))
+			.then(() -> afterTheStreamOpens(
+				template.updateFirst(query(where("id").is("a")), Update.update("name", "Joshua"), Reservation.class).then())
+				.block())
+			.assertNext(change -> {
+				assertThat(change.getOperation()).isEqualTo("update");
+				assertThat(change.getId()).isEqualTo("a");
+				assertThat(change.getReservation()).isEqualTo(new Reservation("a", "Joshua"));
+			})
+			.expectComplete()
+			.verify(Duration.ofSeconds(30));
+	}
+
+	@Test
+	void loadsNothingForACursorThatNeverAcknowledged() {
+		StepVerifier
+			.create(new MongoResumeTokenStore(template).load("nobody"))
+			.verifyComplete();
+	}
+
+	/**
+	 * The change stream cursor is opened asynchronously after subscription, and only sees
+	 * writes made once it is open.
+	 */
+	private static Mono<Void> afterTheStreamOpens(Mono<Void> write) {
+		return Mono.delay(Duration.ofSeconds(1)).then(write);
+	}
+
+}
@@ -0,0 +1,69 @@
+package com.example.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReservationChangeFeedTests {
+
+	private final List<ReservationChange> log = IntStream
+		.rangeClosed(1, 250)
+		.mapToObj(i -> new ReservationChange("insert", "id-" + i, new Reservation("id-" + i, "name-" + i), String.valueOf(i)))
+		.collect(Collectors.toList());
+
+	private final ReservationChangeSource source = resumeAfter -> Flux
+		.fromIterable(log)
+		.skip(resumeAfter == null ? 0 : Integer.parseInt(resumeAfter));
+
+	private final Map<String, String> tokens = new ConcurrentHashMap<>();
+
+	private final ResumeTokenStore store = new ResumeTokenStore() {
+
+		@Override
+		public Mono<String> load(String cursor) {
+			return Mono.justOrEmpty(tokens.get(cursor));
+		}
+
+		@Override
+		public Mono<Void> save(String cursor, String token) {
+			return Mono.fromRunnable(() -> tokens.put(cursor, token));
+		}
+	};
+
+	private final ReservationChangeFeed feed = new ReservationChangeFeed(source, store);
+
+	@Test
+	void resumesAfterTheLastAcknowledgedChange() {
+		StepVerifier
+			.create(feed.changes("jlong/dashboard", null).take(120))
+			.expectNextCount(120)
+			.verifyComplete();
+		assertThat(tokens).doesNotContainKey("jlong/dashboard");
+
+		feed.acknowledge("jlong/dashboard", "100").block();
+		StepVerifier
+			.create(feed.changes("jlong/dashboard", null))
+			.assertNext(change -> assertThat(change.getId()).isEqualTo("id-101"))
+			.expectNextCount(149)
+			.verifyComplete();
+	}
+
+	@Test
+	void keepsCursorsApart() {
+		tokens.put("jlong/dashboard", "200");
+		StepVerifier
+			.create(feed.changes("rwinch/dashboard", null).take(1))
+			.assertNext(change -> assertThat(change.getId()).isEqualTo("id-1"))
+			.verifyComplete();
+	}
+
+}
@@ -1,9 +1,15 @@
 package com.example.service
 
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.emitAll
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.reactive.awaitSingle
 import org.springframework.boot.autoconfigure.SpringBootApplication
 import org.springframework.boot.runApplication
 import org.springframework.context.annotation.Bean
 import org.springframework.context.annotation.Configuration
+import org.springframework.data.repository.kotlin.CoroutineCrudRepository
 import org.springframework.data.repository.reactive.ReactiveCrudRepository
 import org.springframework.messaging.handler.annotation.MessageMapping
 import org.springframework.security.config.Customizer
@@ -16,6 +22,8 @@ import org.springframework.stereotype.Controller
 import org.springframework.stereotype.Service
 import org.springframework.web.reactive.function.server.ServerResponse
 import org.springframework.web.reactive.function.server.body
+import org.springframework.web.reactive.function.server.bodyAndAwait
+import org.springframework.web.reactive.function.server.coRouter
 import org.springframework.web.reactive.function.server.router
 import org.springframework.web.reactive.handler.SimpleUrlHandlerMapping
 import org.springframework.web.reactive.socket.WebSocketHandler
@@ -43,7 +51,7 @@ class SecurityConfiguration {
 			.httpBasic(Customizer.withDefaults())
 			.authorizeExchange { auth ->
 				auth
-						.pathMatchers("/reservations").authenticated()
+						.pathMatchers("/reservations", "/reservations/flow").authenticated()
 						.anyExchange().permitAll()
 			}
 			.build()
@@ -54,6 +62,8 @@ class SecurityConfiguration {
 			.authorizePayload { auth ->
 				auth
 						.route("greetings").authenticated()
+						.route("greetings.flow").authenticated()
+						.route("reservations.flow").authenticated()
 						.anyExchange().permitAll()
 			}
 			.build()
@@ -86,21 +96,48 @@ class HttpConfiguration {
 		}
 	}
 
+	@Bean
+	fun coroutineRoutes(rr: CoroutineReservationRepository) = coRouter {
+		GET("/reservations/flow") {
+			ServerResponse.ok().bodyAndAwait(rr.findAll())
+		}
+	}
+
 }
 
 
 @Controller
-class GreetingService {
+class GreetingService(private val interval: Duration = Duration.ofSeconds(1)) {
 
 	@MessageMapping("greetings")
 	fun greet() = ReactiveSecurityContextHolder.getContext().map { it.authentication.name }.map { GreetingRequest(it) }.flatMapMany { greet(it) }
 
+	@MessageMapping("greetings.flow")
+	fun greetFlow(): Flow<GreetingResponse> = flow {
+		val name = ReactiveSecurityContextHolder.getContext().awaitSingle().authentication.name
+		emitAll(greetFlow(GreetingRequest(name)))
+	}
+
 	fun greet(greetingRequest: GreetingRequest) =
 			Flux
 					.fromStream(Stream.generate {
 						GreetingResponse("hello ${greetingRequest.name} @ ${Instant.now()}!")
 					})
-					.delayElements(Duration.ofSeconds(1))
+					.delayElements(interval)
+
+	fun greetFlow(greetingRequest: GreetingRequest) = flow {
+		while (true) {
+			delay(interval.toMillis())
+			emit(GreetingResponse("hello ${greetingRequest.name} @ ${Instant.now()}!"))
+		}
+	}
+}
+
+@Controller
+class ReservationController(private val rr: CoroutineReservationRepository) {
+
+	@MessageMapping("reservations.flow")
+	fun reservations(): Flow<Reservation> = rr.findAll()
 }
 
 data class Reservation(val id: Int, val name: String)
@@ -112,3 +149,5 @@ fun main(args: Array<String>) {
 }
 
 interface ReservationRepository : ReactiveCrudRepository<Reservation, Int>
+
+interface CoroutineReservationRepository : CoroutineCrudRepository<Reservation, Int>
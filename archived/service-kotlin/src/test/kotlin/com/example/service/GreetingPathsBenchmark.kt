@@ -0,0 +1,47 @@
+package com.example.service
+
+import kotlinx.coroutines.flow.collect
+import kotlinx.coroutines.flow.take
+import kotlinx.coroutines.runBlocking
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty
+import java.lang.management.ManagementFactory
+import java.time.Duration
+
+/**
+ * Compares the Reactor and the coroutine greeting paths with the tick interval set
+ * to zero. Run with `mvn test -Dbenchmark=true -Dtest=GreetingPathsBenchmark`.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class GreetingPathsBenchmark {
+
+	private val greetings = 200_000L
+
+	private val service = GreetingService(Duration.ZERO)
+
+	private val request = GreetingRequest("jlong")
+
+	@Test
+	fun reactorVersusFlow() {
+		repeat(3) {
+			measure("reactor") { service.greet(request).take(greetings).blockLast() }
+			measure("flow") { runBlocking { service.greetFlow(request).take(greetings.toInt()).collect { } } }
+		}
+	}
+
+	private fun measure(path: String, run: () -> Unit) {
+		val allocatedBefore = allocatedBytes()
+		val started = System.nanoTime()
+		run()
+		val elapsed = Duration.ofNanos(System.nanoTime() - started)
+		val allocated = allocatedBytes() - allocatedBefore
+		println("%-8s %,10d greetings/s %,8d bytes/greeting".format(
+				path, greetings * 1_000_000_000 / elapsed.toNanos(), allocated / greetings))
+	}
+
+	private fun allocatedBytes(): Long {
+		val threads = ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+		return threads.getThreadAllocatedBytes(threads.allThreadIds).filter { it > 0 }.sum()
+	}
+
+}
@@ -0,0 +1,212 @@
+package com.example.edge;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.reactivestreams.Subscription;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+@Data
+@ConfigurationProperties("edge.demand")
+class DemandProperties {
+
+    private Limits defaults = new Limits();
+
+    /**
+     * Limits keyed by route, for routes that shouldn't use {@link #defaults}. Limits not
+     * set for a route take their built-in defaults, not those of {@link #defaults}.
+     */
+    private Map<String, Limits> routes = new HashMap<>();
+
+    @Data
+    static class Limits {
+
+        private int initial = 32;
+        private int min = 4;
+        private int max = 512;
+
+        /**
+         * Longest an element should wait between arriving and being taken by the consumer
+         * before the demand window shrinks.
+         */
+        private Duration targetLatency = Duration.ofMillis(50);
+    }
+
+    Limits forRoute(String route) {
+        return this.routes.getOrDefault(route, this.defaults);
+    }
+}
+
+/**
+ * Sizes the {@code request(n)} sent upstream for a stream from how quickly its consumer
+ * keeps up, instead of a fixed prefetch. The window of outstanding demand plus queued
+ * elements grows while elements are taken as fast as they arrive, and is halved as
+ * soon as they queue for longer than the route's target latency or the queue holds
+ * more than half the window, so a slow consumer never has more than one window of
+ * elements buffered at the edge. Demand is replenished only once half the window has
+ * been used up, so that each {@code REQUEST_N} frame asks for many elements, not one.
+ * <p>
+ * The wait measured for an element runs from its arrival until the consumer returns
+ * from handling it. Elements only queue here while the consumer applies backpressure
+ * itself, for instance through {@code flatMap} or {@code publishOn}. A consumer that
+ * requests everything and handles elements synchronously never leaves anything queued,
+ * so the window then shrinks only if handling one element takes longer than the target
+ * latency, and otherwise grows to the route's maximum.
+ */
+@Component
+@RequiredArgsConstructor
+class AdaptiveDemand {
+
+    private final DemandProperties properties;
+
+    <T> Function<Flux<T>, Flux<T>> forRoute(String route) {
+        var limits = this.properties.forRoute(route);
+        return source -> Flux.create(sink -> source.subscribe(new Controller<>(route, limits, sink)));
+    }
+
+    @Log4j2
+    static class Controller<T> extends BaseSubscriber<T> {
+
+        private final Queue<Arrival<T>> queue = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private final AtomicLong outstanding = new AtomicLong();
+
+        private final String route;
+
+        private final DemandProperties.Limits limits;
+
+        private final FluxSink<T> sink;
+
+        private final long targetLatency;
+
+        private int limit;
+
+        private long measured;
+
+        private long latencies;
+
+        private volatile boolean done;
+
+        private Throwable error;
+
+        Controller(String route, DemandProperties.Limits limits, FluxSink<T> sink) {
+            this.route = route;
+            this.limits = limits;
+            this.sink = sink;
+            this.targetLatency = limits.getTargetLatency().toNanos();
+            this.limit = Math.max(limits.getMin(), Math.min(limits.getMax(), limits.getInitial()));
+            sink.onRequest(n -> drain());
+            sink.onDispose(this::dispose);
+        }
+
+        int limit() {
+            return this.limit;
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            drain();
+        }
+
+        @Override
+        protected void hookOnNext(T value) {
+            this.outstanding.decrementAndGet();
+            this.queue.offer(new Arrival<>(value, System.nanoTime()));
+            drain();
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            this.done = true;
+            drain();
+        }
+
+        @Override
+        protected void hookOnError(Throwable throwable) {
+            this.error = throwable;
+            this.done = true;
+            drain();
+        }
+
+        private void drain() {
+            if (this.wip.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                while (this.sink.requestedFromDownstream() > 0 && !this.queue.isEmpty()) {
+                    var arrival = this.queue.poll();
+                    this.sink.next(arrival.value);
+                    adjust(System.nanoTime() - arrival.nanos);
+                }
+                if (this.done && this.queue.isEmpty()) {
+                    if (this.error != null) {
+                        this.sink.error(this.error);
+                    }
+                    else {
+                        this.sink.complete();
+                    }
+                    return;
+                }
+                if (!this.done && !isDisposed() && upstream() != null) {
+                    var pending = this.outstanding.get() + this.queue.size();
+                    if (pending <= this.limit / 2) {
+                        var wanted = this.limit - pending;
+                        this.outstanding.addAndGet(wanted);
+                        request(wanted);
+                    }
+                }
+            }
+            while (this.wip.decrementAndGet() != 0);
+        }
+
+        /**
+         * Additive increase while the consumer keeps up, multiplicative decrease as soon
+         * as it doesn't, re-evaluated once per window of elements.
+         */
+        private void adjust(long latency) {
+            this.measured++;
+            this.latencies += latency;
+            if (this.measured < Math.max(this.limit, 8)) {
+                return;
+            }
+            var average = this.latencies / this.measured;
+            var queued = this.queue.size();
+            var previous = this.limit;
+            if (average > this.targetLatency || queued > this.limit / 2) {
+                this.limit = Math.max(this.limits.getMin(), this.limit / 2);
+            }
+            else if (queued == 0) {
+                this.limit = Math.min(this.limits.getMax(), this.limit + Math.max(1, this.limit / 4));
+            }
+            if (this.limit != previous) {
+                log.debug(this.route + ": demand window " + previous + " -> " + this.limit + " (average wait " +
+                        Duration.ofNanos(average).toMillis() + "ms, " + queued + " queued)");
+            }
+            this.measured = 0;
+            this.latencies = 0;
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class Arrival<T> {
+
+        private final T value;
+
+        private final long nanos;
+    }
+}
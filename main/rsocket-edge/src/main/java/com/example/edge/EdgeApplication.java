@@ -1,16 +1,23 @@
 package com.example.edge;
 
+import com.example.tracing.ClientTracingRSocket;
+import com.example.tracing.Tracer;
+import io.rsocket.exceptions.RejectedException;
 import io.rsocket.metadata.WellKnownMimeType;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.boot.rsocket.messaging.RSocketStrategiesCustomizer;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.messaging.rsocket.RSocketRequester;
 import org.springframework.security.rsocket.metadata.SimpleAuthenticationEncoder;
 import org.springframework.security.rsocket.metadata.UsernamePasswordMetadata;
@@ -18,29 +25,54 @@ import org.springframework.util.MimeType;
 import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.reactive.function.client.ExchangeFilterFunctions;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+import static org.springframework.web.reactive.function.server.ServerResponse.badRequest;
+import static org.springframework.web.reactive.function.server.ServerResponse.notFound;
+import static org.springframework.web.reactive.function.server.ServerResponse.ok;
+import static org.springframework.web.reactive.function.server.ServerResponse.status;
 
 @Log4j2
-@SpringBootApplication
+@ConfigurationPropertiesScan
+@SpringBootApplication(proxyBeanMethods = false)
 public class EdgeApplication {
 
 
     private final MimeType mimeType = MimeTypeUtils.parseMimeType(WellKnownMimeType.MESSAGE_RSOCKET_AUTHENTICATION.getString());
-    private final UsernamePasswordMetadata credentials = new UsernamePasswordMetadata("jlong", "pw");
+    /**
+     * The edge's own account, which the service gives a rate limit sized for every
+     * user's lookups arriving over one connection.
+     */
+    private final UsernamePasswordMetadata credentials = new UsernamePasswordMetadata("edge", "pw");
 
     @Bean
     WebClient webClient(WebClient.Builder builder) {
         return builder
-                .filter(ExchangeFilterFunctions.basicAuthentication("jlong", "pw"))
+                .filter(ExchangeFilterFunctions.basicAuthentication(this.credentials.getUsername(), this.credentials.getPassword()))
                 .build();
     }
 
     @Bean
-    RSocketRequester rSocketRequester(RSocketRequester.Builder builder) {
-        return builder
+    RSocketConnection rSocketConnection(RSocketRequester.Builder builder, Tracer tracer,
+                                        @Value("${edge.rsocket.compression:true}") boolean compression) {
+        builder
+                .dataMimeType(ProxyingRSocket.DATA_MIME_TYPE)
+                .metadataMimeType(ProxyingRSocket.METADATA_MIME_TYPE)
                 .setupMetadata(this.credentials, this.mimeType)
-                .connectTcp("localhost", 8888)
-                .block();
+                .rsocketConnector(connector -> connector.interceptors(registry -> registry.forRequester(rsocket -> new ClientTracingRSocket(rsocket, tracer))));
+        if (compression) {
+            builder
+                    .setupMetadata(PayloadDecompression.LZ4, MimeTypeUtils.parseMimeType(PayloadDecompression.ACCEPT_MIME_TYPE))
+                    .rsocketConnector(connector -> connector.interceptors(registry -> registry.forRequester(PayloadDecompression.DecompressingRSocket::new)));
+        }
+        var connect = builder.connectTcp("localhost", 8888);
+        return new RSocketConnection(connect, Duration.ofMillis(100), Duration.ofSeconds(10));
     }
 
     @Bean
@@ -50,23 +82,50 @@ public class EdgeApplication {
 
 
     @Bean
-    ApplicationListener<ApplicationReadyEvent> httpReady(WebClient http) {
-        return event -> http
-                .get()
-                .uri("http://localhost:8080/reservations")
-                .retrieve()
-                .bodyToFlux(Reservation.class)
-                .subscribe(r -> log.info("secured response: " + r.toString()));
+    ReservationReplica reservationReplica(RSocketConnection connection, AdaptiveDemand demand) {
+        return new ReservationReplica(connection, demand, this.credentials, this.mimeType);
+    }
+
+    @Bean
+    ReservationLoader reservationLoader(RSocketConnection connection, ReservationLoaderProperties properties) {
+        return new ReservationLoader(connection, properties, this.credentials, this.mimeType);
+    }
+
+    @Bean
+    RouterFunction<ServerResponse> routes(ReservationReplica replica, ReservationLoader loader, Tracer tracer) {
+        return route()
+                .GET("/reservations", request -> ok().body(replica.reservations().transform(tracer.spans("routes.reservations")), Reservation.class))
+                .GET("/reservations/{id}", request -> Mono
+                        .fromCallable(() -> Integer.valueOf(request.pathVariable("id")))
+                        .flatMap(id -> loader
+                                .load(id)
+                                .transform(tracer.span("routes.reservation"))
+                                .flatMap(reservation -> ok().bodyValue(reservation))
+                                .switchIfEmpty(notFound().build()))
+                        .onErrorResume(NumberFormatException.class, e -> badRequest().build())
+                        .onErrorResume(RejectedException.class, e -> status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build()))
+                .build();
+    }
+
+    @Bean
+    ApplicationListener<ApplicationReadyEvent> httpReady(ReservationReplica replica) {
+        return event -> replica
+                .reservations()
+                .subscribe(r -> log.info("replicated reservation: " + r.toString()), error -> log.warn("no replicated reservations: " + error.getMessage()));
     }
 
     @Bean
-    ApplicationListener<ApplicationReadyEvent> rsocketReady(RSocketRequester greetings) {
+    ApplicationListener<ApplicationReadyEvent> rsocketReady(RSocketConnection connection, AdaptiveDemand demand) {
         return event ->
-                greetings
-                        .route("greetings")
-                        .metadata(this.credentials, this.mimeType)
-                        .data(Mono.empty())
-                        .retrieveFlux(GreetingResponse.class)
+                connection
+                        .requester()
+                        .flatMapMany(greetings -> greetings
+                                .route("greetings")
+                                .metadata(this.credentials, this.mimeType)
+                                .data(Mono.empty())
+                                .retrieveFlux(GreetingResponse.class)
+                                .transform(demand.forRoute("greetings")))
+                        .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofMillis(100)).maxBackoff(Duration.ofSeconds(10)).jitter(0.5))
                         .subscribe(gr -> log.info("secured response: " + gr.toString()));
     }
 
@@ -0,0 +1,243 @@
+package com.example.edge;
+
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.SocketAcceptor;
+import io.rsocket.exceptions.RejectedException;
+import io.rsocket.exceptions.RejectedSetupException;
+import io.rsocket.metadata.CompositeMetadata;
+import io.rsocket.metadata.RoutingMetadata;
+import io.rsocket.metadata.WellKnownMimeType;
+import io.rsocket.util.RSocketProxy;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.rsocket.server.RSocketServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Data
+@ConfigurationProperties("edge.proxy")
+class ProxyProperties {
+
+    /**
+     * Request paths the edge proxies, each mapped to the base URL of the service that
+     * serves it. Take precedence over the edge's own routes for the same path, so none
+     * are proxied by default.
+     */
+    private Map<String, URI> httpRoutes = new LinkedHashMap<>();
+
+    /**
+     * Routes that requests to the edge's own RSocket endpoint are forwarded to the
+     * service for.
+     */
+    private List<String> rsocketRoutes = new ArrayList<>(List.of("greetings"));
+}
+
+@Configuration(proxyBeanMethods = false)
+class GatewayProxyConfiguration {
+
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    RouterFunction<ServerResponse> proxyRoutes(ProxyProperties properties, WebClient.Builder builder) {
+        if (properties.getHttpRoutes().isEmpty()) {
+            return request -> Mono.empty();
+        }
+        var client = builder.build();
+        var routes = RouterFunctions.route();
+        properties.getHttpRoutes().forEach((path, target) -> routes.route(RequestPredicates.path(path), new HttpProxy(client, target)));
+        return routes.build();
+    }
+
+    @Bean
+    RSocketServerCustomizer rsocketProxy(ProxyProperties properties, RSocketConnection connection) {
+        var routes = Set.copyOf(properties.getRsocketRoutes());
+        if (routes.isEmpty()) {
+            return server -> { };
+        }
+        return server -> server.interceptors(registry -> registry
+                .forSocketAcceptor(ProxyingRSocket::requireForwardableSetup)
+                .forResponder(responder -> new ProxyingRSocket(responder, connection, routes)));
+    }
+}
+
+/**
+ * Forwards HTTP requests to another service and streams its responses back. Request
+ * and response bodies pass through as the {@link DataBuffer}s the servers read, never
+ * decoded, and the response is read from the service only as fast as the client takes
+ * it. Headers are copied except for the hop-by-hop ones; the client's own
+ * {@code Authorization} goes through as is.
+ */
+@RequiredArgsConstructor
+class HttpProxy implements HandlerFunction<ServerResponse> {
+
+    private static final Set<String> HOP_BY_HOP = Set.of("connection", "keep-alive", "proxy-authenticate", "proxy-authorization",
+            "te", "trailer", "transfer-encoding", "upgrade", "host");
+
+    private final WebClient client;
+
+    private final URI target;
+
+    @Override
+    public Mono<ServerResponse> handle(ServerRequest request) {
+        var uri = UriComponentsBuilder
+                .fromUri(this.target)
+                .path(request.uri().getRawPath())
+                .query(request.uri().getRawQuery())
+                .build(true)
+                .toUri();
+        var forwarded = this.client
+                .method(request.method())
+                .uri(uri)
+                .headers(headers -> copy(request.headers().asHttpHeaders(), headers));
+        if (request.headers().contentLength().isPresent() || request.headers().asHttpHeaders().containsKey(HttpHeaders.TRANSFER_ENCODING)) {
+            forwarded.body(BodyInserters.fromDataBuffers(request.bodyToFlux(DataBuffer.class)));
+        }
+        return forwarded
+                .exchange()
+                .flatMap(response -> ServerResponse
+                        .status(response.rawStatusCode())
+                        .headers(headers -> copy(response.headers().asHttpHeaders(), headers))
+                        .body(BodyInserters.fromDataBuffers(response.bodyToFlux(DataBuffer.class))));
+    }
+
+    private static void copy(HttpHeaders from, HttpHeaders to) {
+        from.forEach((name, values) -> {
+            if (!HOP_BY_HOP.contains(name.toLowerCase())) {
+                to.addAll(name, values);
+            }
+        });
+    }
+}
+
+/**
+ * Forwards requests for the proxied routes, metadata and data untouched, over the
+ * edge's connection to the service, and relays the response payloads back the same
+ * way; every other route goes to the edge's own handlers. Demand travels end to end,
+ * as the client's {@code request(n)} becomes the edge's. Forwarded requests must carry
+ * their own authentication metadata, so that the service never sees them as the
+ * edge's own user.
+ */
+class ProxyingRSocket extends RSocketProxy {
+
+    /**
+     * What the edge's own connection to the service uses, and so what clients of proxied
+     * routes have to use: the service decodes their bytes as sent.
+     */
+    static final MimeType DATA_MIME_TYPE = MimeTypeUtils.APPLICATION_JSON;
+
+    static final MimeType METADATA_MIME_TYPE = MimeTypeUtils.parseMimeType(WellKnownMimeType.MESSAGE_RSOCKET_COMPOSITE_METADATA.getString());
+
+    private final RSocketConnection connection;
+
+    private final Set<String> routes;
+
+    ProxyingRSocket(RSocket source, RSocketConnection connection, Set<String> routes) {
+        super(source);
+        this.connection = connection;
+        this.routes = routes;
+    }
+
+    @Override
+    public Mono<Void> fireAndForget(Payload payload) {
+        if (!proxied(payload)) {
+            return super.fireAndForget(payload);
+        }
+        return rejection(payload).switchIfEmpty(this.connection.requester().flatMap(requester -> requester.rsocket().fireAndForget(payload)));
+    }
+
+    @Override
+    public Mono<Payload> requestResponse(Payload payload) {
+        if (!proxied(payload)) {
+            return super.requestResponse(payload);
+        }
+        return rejection(payload).cast(Payload.class).switchIfEmpty(this.connection.requester().flatMap(requester -> requester.rsocket().requestResponse(payload)));
+    }
+
+    @Override
+    public Flux<Payload> requestStream(Payload payload) {
+        if (!proxied(payload)) {
+            return super.requestStream(payload);
+        }
+        return rejection(payload).cast(Payload.class).switchIfEmpty(this.connection.requester().flatMapMany(requester -> requester.rsocket().requestStream(payload)));
+    }
+
+    /**
+     * Rejects connections whose SETUP declares MIME types other than those of the edge's
+     * connection, whose payloads the service would decode wrongly.
+     */
+    static SocketAcceptor requireForwardableSetup(SocketAcceptor acceptor) {
+        return (setup, sendingSocket) -> {
+            if (!matches(setup.dataMimeType(), DATA_MIME_TYPE) || !matches(setup.metadataMimeType(), METADATA_MIME_TYPE)) {
+                return Mono.error(new RejectedSetupException("this endpoint needs " + DATA_MIME_TYPE + " data and " + METADATA_MIME_TYPE +
+                        " metadata, not " + setup.dataMimeType() + " and " + setup.metadataMimeType()));
+            }
+            return acceptor.accept(setup, sendingSocket);
+        };
+    }
+
+    private static boolean matches(String declared, MimeType expected) {
+        try {
+            return declared != null && expected.equalsTypeAndSubtype(MimeTypeUtils.parseMimeType(declared));
+        }
+        catch (InvalidMimeTypeException e) {
+            return false;
+        }
+    }
+
+    private boolean proxied(Payload payload) {
+        var route = entry(payload, WellKnownMimeType.MESSAGE_RSOCKET_ROUTING.getString());
+        if (route == null) {
+            return false;
+        }
+        for (var tag : new RoutingMetadata(route.getContent())) {
+            return this.routes.contains(tag);
+        }
+        return false;
+    }
+
+    private static Mono<Void> rejection(Payload payload) {
+        if (entry(payload, WellKnownMimeType.MESSAGE_RSOCKET_AUTHENTICATION.getString()) != null) {
+            return Mono.empty();
+        }
+        payload.release();
+        return Mono.error(new RejectedException("proxied routes need authentication metadata"));
+    }
+
+    private static CompositeMetadata.Entry entry(Payload payload, String mimeType) {
+        if (!payload.hasMetadata()) {
+            return null;
+        }
+        for (var entry : new CompositeMetadata(payload.sliceMetadata(), false)) {
+            if (mimeType.equals(entry.getMimeType())) {
+                return entry;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.edge;
+
+import io.rsocket.metadata.WellKnownMimeType;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.ApplicationListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.security.rsocket.metadata.UsernamePasswordMetadata;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunctions;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Data
+@ConfigurationProperties("edge.load")
+class LoadProperties {
+
+    private boolean enabled = false;
+    private String host = "localhost";
+    private int rsocketPort = 8888;
+    private int httpPort = 8080;
+    private String username = "jlong";
+    private String password = "pw";
+    private int rsocketConnections = 10;
+    private int streamsPerConnection = 10;
+    private int websocketSessions = 10;
+    private double httpRequestsPerSecond = 50;
+    private int maxHttpRequestsInFlight = 256;
+    private Duration duration = Duration.ofSeconds(60);
+    private String report = "load-report.txt";
+    private boolean exitWhenDone = true;
+}
+
+/**
+ * Drives greeting streams over RSocket and WebSocket and a fixed-rate
+ * {@code GET /reservations} workload against the service for a fixed duration, then
+ * writes a latency and throughput report. Greeting latency is the time between the
+ * service stamping a greeting and the edge receiving it; HTTP latency is measured
+ * from when each request was scheduled to be sent, so a stalled service can't hide
+ * its queueing delay.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty("edge.load.enabled")
+class LoadGenerator implements ApplicationListener<ApplicationReadyEvent> {
+
+    private final LoadProperties properties;
+
+    private final RSocketRequester.Builder rsocketRequesterBuilder;
+
+    private final WebClient.Builder webClientBuilder;
+
+    private final AdaptiveDemand demand;
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        var rsocket = new Workload("rsocket");
+        var websocket = new Workload("websocket");
+        var http = new Workload("http");
+        var started = System.nanoTime();
+        log.info("generating load for " + this.properties.getDuration() + ": " + this.properties);
+        Flux
+                .merge(rsocketStreams(rsocket), webSocketSessions(websocket), httpRequests(http))
+                .take(this.properties.getDuration())
+                .then()
+                .doFinally(signal -> {
+                    report(List.of(rsocket, websocket, http), Duration.ofNanos(System.nanoTime() - started));
+                    if (this.properties.isExitWhenDone()) {
+                        System.exit(SpringApplication.exit(event.getApplicationContext()));
+                    }
+                })
+                .subscribe();
+    }
+
+    private Flux<Void> rsocketStreams(Workload workload) {
+        var mimeType = MimeTypeUtils.parseMimeType(WellKnownMimeType.MESSAGE_RSOCKET_AUTHENTICATION.getString());
+        var credentials = new UsernamePasswordMetadata(this.properties.getUsername(), this.properties.getPassword());
+        var streams = this.properties.getStreamsPerConnection();
+        var builder = this.rsocketRequesterBuilder.setupMetadata(credentials, mimeType);
+        return Flux
+                .range(0, this.properties.getRsocketConnections())
+                .flatMap(connection -> builder
+                        .connectTcp(this.properties.getHost(), this.properties.getRsocketPort())
+                        .flatMapMany(requester -> Flux
+                                .range(0, streams)
+                                .flatMap(stream -> requester
+                                        .route("greetings")
+                                        .metadata(credentials, mimeType)
+                                        .data(Mono.empty())
+                                        .retrieveFlux(GreetingResponse.class)
+                                        .transform(this.demand.forRoute("greetings")), streams)
+                                .doFinally(signal -> requester.rsocket().dispose()))
+                        .doOnNext(greeting -> workload.recordGreeting(greeting.getMessage()))
+                        .doOnError(workload::recordError)
+                        .onErrorResume(error -> Mono.empty())
+                        .then(), Math.max(1, this.properties.getRsocketConnections()));
+    }
+
+    private Flux<Void> webSocketSessions(Workload workload) {
+        var client = new ReactorNettyWebSocketClient();
+        var uri = URI.create("ws://" + this.properties.getHost() + ":" + this.properties.getHttpPort() + "/ws/greetings");
+        var headers = new HttpHeaders();
+        headers.setBasicAuth(this.properties.getUsername(), this.properties.getPassword());
+        return Flux
+                .range(0, this.properties.getWebsocketSessions())
+                .flatMap(session -> client
+                        .execute(uri, headers, ws -> ws
+                                .send(Mono.just(ws.textMessage(this.properties.getUsername())))
+                                .thenMany(ws.receive().map(WebSocketMessage::getPayloadAsText))
+                                .doOnNext(workload::recordGreeting)
+                                .then())
+                        .doOnError(workload::recordError)
+                        .onErrorResume(error -> Mono.empty()), Math.max(1, this.properties.getWebsocketSessions()));
+    }
+
+    private Flux<Void> httpRequests(Workload workload) {
+        if (this.properties.getHttpRequestsPerSecond() <= 0) {
+            return Flux.empty();
+        }
+        var http = this.webClientBuilder
+                .filter(ExchangeFilterFunctions.basicAuthentication(this.properties.getUsername(), this.properties.getPassword()))
+                .build();
+        var uri = "http://" + this.properties.getHost() + ":" + this.properties.getHttpPort() + "/reservations";
+        var period = (long) (TimeUnit.SECONDS.toNanos(1) / this.properties.getHttpRequestsPerSecond());
+        var started = System.nanoTime();
+        return Flux
+                .interval(Duration.ofNanos(period))
+                .onBackpressureDrop(tick -> workload.recordError(new IllegalStateException("too many requests in flight")))
+                .flatMap(tick -> {
+                    var scheduled = started + (tick + 1) * period;
+                    return http
+                            .get()
+                            .uri(uri)
+                            .retrieve()
+                            .bodyToFlux(Reservation.class)
+                            .then()
+                            .doOnSuccess(done -> workload.record(System.nanoTime() - scheduled))
+                            .doOnError(workload::recordError)
+                            .onErrorResume(error -> Mono.empty());
+                }, this.properties.getMaxHttpRequestsInFlight());
+    }
+
+    private void report(List<Workload> workloads, Duration elapsed) {
+        var lines = new ArrayList<String>();
+        lines.add(String.format("%-10s %10s %12s %9s %9s %9s %9s %9s %8s",
+                "workload", "count", "per second", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "errors"));
+        for (var workload : workloads) {
+            var histogram = workload.latencies.getIntervalHistogram();
+            var count = workload.count.get();
+            lines.add(String.format("%-10s %10d %12.1f %9.2f %9.2f %9.2f %9.2f %9.2f %8d",
+                    workload.name,
+                    count,
+                    count / (elapsed.toNanos() / 1e9),
+                    histogram.getValueAtPercentile(50) / 1e6,
+                    histogram.getValueAtPercentile(90) / 1e6,
+                    histogram.getValueAtPercentile(99) / 1e6,
+                    histogram.getValueAtPercentile(99.9) / 1e6,
+                    histogram.getMaxValue() / 1e6,
+                    workload.errors.get()));
+        }
+        lines.forEach(log::info);
+        var report = Path.of(this.properties.getReport());
+        try {
+            Files.write(report, lines);
+            log.info("load report written to " + report.toAbsolutePath());
+        }
+        catch (IOException e) {
+            log.warn("could not write load report to " + this.properties.getReport(), e);
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class Workload {
+
+        private final String name;
+
+        private final Recorder latencies = new Recorder(3);
+
+        private final AtomicLong count = new AtomicLong();
+
+        private final AtomicLong errors = new AtomicLong();
+
+        void record(long latencyNanos) {
+            this.count.incrementAndGet();
+            if (latencyNanos >= 0) {
+                this.latencies.recordValue(latencyNanos);
+            }
+        }
+
+        void recordGreeting(String message) {
+            var stamp = message.lastIndexOf(" @ ");
+            if (stamp < 0) {
+                this.count.incrementAndGet();
+                return;
+            }
+            try {
+                var sent = Instant.parse(message.substring(stamp + 3));
+                record(Duration.between(sent, Instant.now()).toNanos());
+            }
+            catch (DateTimeParseException e) {
+                this.count.incrementAndGet();
+            }
+        }
+
+        void recordError(Throwable error) {
+            if (this.errors.incrementAndGet() == 1) {
+                log.warn(this.name + " workload failed: " + error.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.edge;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.metadata.CompositeMetadata;
+import io.rsocket.util.ByteBufPayload;
+import io.rsocket.util.RSocketProxy;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The requester side of the service's payload compression: announces in the SETUP
+ * metadata that this connection accepts LZ4, then inflates every response payload that
+ * carries a compression metadata entry before Spring decodes it.
+ */
+class PayloadDecompression {
+
+    static final String ACCEPT_MIME_TYPE = "message/x.rsocket.accept-compression.v0";
+
+    static final String MIME_TYPE = "message/x.rsocket.compression.v0";
+
+    static final String LZ4 = "lz4";
+
+    private static final LZ4FastDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().fastDecompressor();
+
+    static Payload decompress(Payload payload) {
+        if (!payload.hasMetadata() || !LZ4.equals(entry(payload.sliceMetadata(), MIME_TYPE))) {
+            return payload;
+        }
+        var data = payload.sliceData();
+        var length = data.readInt();
+        var inflated = ByteBufAllocator.DEFAULT.buffer(length);
+        DECOMPRESSOR.decompress(data.nioBuffer(), 0, inflated.nioBuffer(0, length), 0, length);
+        inflated.writerIndex(length);
+        var decompressed = ByteBufPayload.create(inflated, payload.sliceMetadata().retain());
+        payload.release();
+        return decompressed;
+    }
+
+    private static String entry(ByteBuf compositeMetadata, String mimeType) {
+        if (!compositeMetadata.isReadable()) {
+            return null;
+        }
+        for (var entry : new CompositeMetadata(compositeMetadata, false)) {
+            if (mimeType.equals(entry.getMimeType())) {
+                return entry.getContent().toString(StandardCharsets.US_ASCII);
+            }
+        }
+        return null;
+    }
+
+    static class DecompressingRSocket extends RSocketProxy {
+
+        DecompressingRSocket(RSocket source) {
+            super(source);
+        }
+
+        @Override
+        public Mono<Payload> requestResponse(Payload payload) {
+            return super.requestResponse(payload).map(PayloadDecompression::decompress);
+        }
+
+        @Override
+        public Flux<Payload> requestStream(Payload payload) {
+            return super.requestStream(payload).map(PayloadDecompression::decompress);
+        }
+
+        @Override
+        public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
+            return super.requestChannel(payloads).map(PayloadDecompression::decompress);
+        }
+    }
+}
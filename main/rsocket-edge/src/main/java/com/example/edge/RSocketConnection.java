@@ -0,0 +1,64 @@
+package com.example.edge;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lazily connects an {@link RSocketRequester} on first use and shares that connection
+ * with every caller until it closes, at which point the next caller transparently
+ * reconnects. Connection attempts back off with jitter so that a fleet of edges
+ * doesn't stampede a service instance that is just coming back up.
+ */
+@Log4j2
+class RSocketConnection {
+
+    private final AtomicReference<Mono<RSocketRequester>> current = new AtomicReference<>();
+
+    private final Mono<RSocketRequester> connect;
+
+    private final Retry retry;
+
+    RSocketConnection(Mono<RSocketRequester> connect, Duration minBackoff, Duration maxBackoff) {
+        this.connect = connect;
+        this.retry = Retry
+                .backoff(Long.MAX_VALUE, minBackoff)
+                .maxBackoff(maxBackoff)
+                .jitter(0.5)
+                .doBeforeRetry(signal -> log.warn("could not connect (attempt #" + (signal.totalRetries() + 1) + "): " + signal.failure().getMessage()));
+    }
+
+    Mono<RSocketRequester> requester() {
+        return Mono.defer(() -> {
+            while (true) {
+                var existing = this.current.get();
+                if (existing != null) {
+                    return existing;
+                }
+                var connection = new AtomicReference<Mono<RSocketRequester>>();
+                var fresh = this.connect
+                        .retryWhen(this.retry)
+                        .doOnNext(requester -> requester
+                                .rsocket()
+                                .onClose()
+                                .doFinally(signal -> invalidate(connection.get()))
+                                .subscribe(null, error -> log.warn("connection closed with error: " + error.getMessage())))
+                        .cache();
+                connection.set(fresh);
+                if (this.current.compareAndSet(null, fresh)) {
+                    return fresh;
+                }
+            }
+        });
+    }
+
+    private void invalidate(Mono<RSocketRequester> connection) {
+        if (this.current.compareAndSet(connection, null)) {
+            log.info("connection closed; the next request will reconnect");
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.edge;
+
+import lombok.Data;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.MimeType;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@Data
+@ConfigurationProperties("edge.loader")
+class ReservationLoaderProperties {
+
+    /**
+     * How long the first lookup of a batch waits for others to join it.
+     */
+    private Duration window = Duration.ofMillis(2);
+
+    /**
+     * Batches are sent as soon as they hold this many distinct ids. Must not exceed the
+     * service's limit for {@code reservations.lookup}.
+     */
+    private int maxBatchSize = 256;
+}
+
+/**
+ * Looks up reservations by id in batches. Lookups issued within the same short window
+ * are collected and sent to the service as one {@code reservations.lookup} request,
+ * which it answers with a single query, and each caller then gets its own reservation
+ * back. Callers asking for the same id in a window share one slot in the batch.
+ */
+@Log4j2
+class ReservationLoader {
+
+    private final RSocketConnection connection;
+
+    private final ReservationLoaderProperties properties;
+
+    private final Object credentials;
+
+    private final MimeType credentialsMimeType;
+
+    private Map<Integer, MonoProcessor<Reservation>> batch = new HashMap<>();
+
+    /**
+     * The subscriber context of the first lookup in the batch, which the batched request
+     * runs with, so it is traced as part of that lookup's trace.
+     */
+    private Context batchContext = Context.empty();
+
+    private Disposable scheduled;
+
+    ReservationLoader(RSocketConnection connection, ReservationLoaderProperties properties, Object credentials, MimeType credentialsMimeType) {
+        this.connection = connection;
+        this.properties = properties;
+        this.credentials = credentials;
+        this.credentialsMimeType = credentialsMimeType;
+    }
+
+    /**
+     * @return the reservation, or empty if there is none with this id
+     */
+    Mono<Reservation> load(Integer id) {
+        return Mono.deferWithContext(context -> {
+            MonoProcessor<Reservation> result;
+            Map<Integer, MonoProcessor<Reservation>> full = null;
+            Context fullContext = null;
+            synchronized (this) {
+                result = this.batch.get(id);
+                if (result == null) {
+                    result = MonoProcessor.create();
+                    this.batch.put(id, result);
+                    if (this.batch.size() == 1) {
+                        this.batchContext = context;
+                    }
+                    if (this.batch.size() >= this.properties.getMaxBatchSize()) {
+                        fullContext = this.batchContext;
+                        full = take();
+                    }
+                    else if (this.batch.size() == 1) {
+                        var current = this.batch;
+                        this.scheduled = Schedulers.parallel().schedule(() -> flush(current), this.properties.getWindow().toNanos(), TimeUnit.NANOSECONDS);
+                    }
+                }
+            }
+            if (full != null) {
+                dispatch(full, fullContext);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * @return the reservations found, in the order of {@code ids}
+     */
+    Flux<Reservation> loadMany(Collection<Integer> ids) {
+        return Flux.fromIterable(ids).flatMapSequential(this::load);
+    }
+
+    private void flush(Map<Integer, MonoProcessor<Reservation>> expected) {
+        Map<Integer, MonoProcessor<Reservation>> taken;
+        Context context;
+        synchronized (this) {
+            if (this.batch != expected) {
+                return;
+            }
+            context = this.batchContext;
+            taken = take();
+        }
+        dispatch(taken, context);
+    }
+
+    private Map<Integer, MonoProcessor<Reservation>> take() {
+        var taken = this.batch;
+        this.batch = new HashMap<>();
+        this.batchContext = Context.empty();
+        if (this.scheduled != null) {
+            this.scheduled.dispose();
+            this.scheduled = null;
+        }
+        return taken;
+    }
+
+    private void dispatch(Map<Integer, MonoProcessor<Reservation>> batch, Context context) {
+        this.connection
+                .requester()
+                .flatMapMany(requester -> requester
+                        .route("reservations.lookup")
+                        .metadata(this.credentials, this.credentialsMimeType)
+                        .data(new ArrayList<>(batch.keySet()))
+                        .retrieveFlux(Reservation.class))
+                .subscriberContext(context)
+                .subscribe(
+                        reservation -> {
+                            var result = batch.remove(reservation.getId());
+                            if (result != null) {
+                                result.onNext(reservation);
+                            }
+                        },
+                        error -> {
+                            log.warn("could not look up " + batch.size() + " reservation(s): " + error.getMessage());
+                            batch.values().forEach(result -> result.onError(error));
+                        },
+                        () -> batch.values().forEach(MonoProcessor::onComplete));
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.edge;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.MimeType;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A local copy of the service's reservations, kept up to date over
+ * {@code reservations.sync}. The first connection downloads a snapshot; after that,
+ * reconnecting only transfers the changes since the last version applied, unless the
+ * service restarted or has forgotten them, in which case it sends a new snapshot. A
+ * snapshot is collected on the side and replaces the live copy in one step. Readers
+ * that come before the first snapshot wait for it for {@link #READY_TIMEOUT} at most,
+ * then get a 503.
+ */
+@Log4j2
+class ReservationReplica implements SmartLifecycle {
+
+    static final Duration READY_TIMEOUT = Duration.ofSeconds(5);
+
+    private volatile Map<Integer, Reservation> reservations = new ConcurrentHashMap<>();
+
+    private final MonoProcessor<Void> ready = MonoProcessor.create();
+
+    private final RSocketConnection connection;
+
+    private final AdaptiveDemand demand;
+
+    private final Object credentials;
+
+    private final MimeType credentialsMimeType;
+
+    private Map<Integer, Reservation> snapshot;
+
+    private volatile String epoch;
+
+    private volatile long version;
+
+    private volatile Disposable syncing;
+
+    ReservationReplica(RSocketConnection connection, AdaptiveDemand demand, Object credentials, MimeType credentialsMimeType) {
+        this.connection = connection;
+        this.demand = demand;
+        this.credentials = credentials;
+        this.credentialsMimeType = credentialsMimeType;
+    }
+
+    Flux<Reservation> reservations() {
+        return ready().thenMany(Flux.defer(() -> Flux.fromStream(this.reservations
+                .values()
+                .stream()
+                .sorted(Comparator.comparing(Reservation::getId)))));
+    }
+
+    Mono<Void> ready() {
+        return this.ready.timeout(READY_TIMEOUT, Mono.defer(() -> Mono.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                "reservations not replicated from the service yet"))));
+    }
+
+    @Override
+    public void start() {
+        this.syncing = Mono
+                .defer(this.connection::requester)
+                .flatMapMany(requester -> requester
+                        .route("reservations.sync")
+                        .metadata(this.credentials, this.credentialsMimeType)
+                        .data(new ReservationSyncRequest(this.epoch, this.version))
+                        .retrieveFlux(ReservationSyncMessage.class)
+                        .transform(this.demand.forRoute("reservations.sync")))
+                .doOnNext(this::apply)
+                .retryWhen(Retry
+                        .backoff(Long.MAX_VALUE, Duration.ofMillis(100))
+                        .maxBackoff(Duration.ofSeconds(10))
+                        .jitter(0.5)
+                        .doBeforeRetry(signal -> log.warn("reservation sync interrupted at version " + this.version + ": " + signal.failure().getMessage())))
+                .subscribe();
+    }
+
+    private void apply(ReservationSyncMessage message) {
+        switch (message.getType()) {
+            case ReservationSyncMessage.RESET:
+                this.snapshot = new HashMap<>();
+                return;
+            case ReservationSyncMessage.CURRENT:
+                this.reservations = new ConcurrentHashMap<>(this.snapshot);
+                this.snapshot = null;
+                this.epoch = message.getEpoch();
+                log.info("replicated " + this.reservations.size() + " reservations at version " + message.getVersion());
+                this.ready.onComplete();
+                break;
+            case ReservationSyncMessage.UPSERT:
+                target().put(message.getId(), new Reservation(message.getId(), message.getName()));
+                break;
+            case ReservationSyncMessage.DELETE:
+                target().remove(message.getId());
+                break;
+            case ReservationSyncMessage.CLEAR:
+                target().clear();
+                break;
+            default:
+                log.debug("ignoring reservation sync message " + message);
+                return;
+        }
+        if (this.snapshot == null) {
+            this.version = message.getVersion();
+        }
+    }
+
+    private Map<Integer, Reservation> target() {
+        return this.snapshot != null ? this.snapshot : this.reservations;
+    }
+
+    @Override
+    public void stop() {
+        if (this.syncing != null) {
+            this.syncing.dispose();
+            this.syncing = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.syncing != null;
+    }
+}
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+class ReservationSyncRequest {
+    private String epoch;
+    private long version;
+}
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+class ReservationSyncMessage {
+
+    static final String RESET = "reset";
+    static final String CURRENT = "current";
+    static final String UPSERT = "upsert";
+    static final String DELETE = "delete";
+    static final String CLEAR = "clear";
+
+    private String type;
+    private String epoch;
+    private long version;
+    private Integer id;
+    private String name;
+}
@@ -0,0 +1,44 @@
+package com.example.edge;
+
+import com.example.tracing.TraceContext;
+import com.example.tracing.Tracer;
+import com.example.tracing.TracingProperties;
+import com.example.tracing.TracingWebFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.ClientRequest;
+
+/**
+ * Traces HTTP requests to the edge and its calls to the service with the shared
+ * {@link Tracer}. The RSocket connection to the service is traced where it is built.
+ */
+@Configuration(proxyBeanMethods = false)
+class TracingConfiguration {
+
+    @Bean
+    @ConfigurationProperties("edge.tracing")
+    TracingProperties tracingProperties() {
+        var properties = new TracingProperties();
+        properties.setExport("edge-traces.jsonl");
+        return properties;
+    }
+
+    @Bean
+    Tracer tracer(TracingProperties properties, ObjectMapper objectMapper) {
+        return new Tracer(properties, objectMapper, "edge");
+    }
+
+    @Bean
+    TracingWebFilter httpTracing(Tracer tracer) {
+        return new TracingWebFilter(tracer);
+    }
+
+    @Bean
+    WebClientCustomizer httpClientTracing(Tracer tracer) {
+        return builder -> builder.filter((request, next) -> tracer.client("http " + request.method() + " " + request.url().getPath(),
+                context -> next.exchange(context == null ? request : ClientRequest.from(request).header(TraceContext.HEADER, context.traceparent()).build())));
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.edge;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveDemandTests {
+
+	private final List<Long> requests = new CopyOnWriteArrayList<>();
+
+	@Test
+	void growsTheWindowForAConsumerThatKeepsUp() {
+		var demand = demand(8, 4, 64, Duration.ofSeconds(1));
+		StepVerifier
+				.create(source(2_000).transform(demand.forRoute("fast")))
+				.expectNextCount(2_000)
+				.verifyComplete();
+		assertThat(this.requests.get(0)).isEqualTo(8);
+		assertThat(this.requests).allMatch(n -> n <= 64);
+		assertThat(this.requests.stream().mapToLong(Long::longValue).max().getAsLong()).isEqualTo(64);
+	}
+
+	@Test
+	void shrinksTheWindowForAConsumerThatFallsBehind() {
+		var demand = demand(32, 4, 64, Duration.ofMillis(1));
+		StepVerifier
+				.create(source(200).transform(demand.forRoute("slow")).doOnNext(value -> sleep(2)))
+				.expectNextCount(200)
+				.verifyComplete();
+		assertThat(this.requests.get(0)).isEqualTo(32);
+		assertThat(this.requests.get(this.requests.size() - 1)).isLessThanOrEqualTo(4);
+	}
+
+	@Test
+	void asksForHalfAWindowOrMoreAtATime() {
+		var demand = demand(64, 64, 64, Duration.ofSeconds(1));
+		StepVerifier
+				.create(source(1_000).transform(demand.forRoute("batched")).publishOn(Schedulers.parallel(), 8))
+				.expectNextCount(1_000)
+				.verifyComplete();
+		assertThat(this.requests).allMatch(n -> n >= 32);
+		assertThat(this.requests.size()).isLessThanOrEqualTo(1_000 / 32 + 1);
+	}
+
+	private Flux<Integer> source(int elements) {
+		return Flux.range(0, elements).doOnRequest(this.requests::add);
+	}
+
+	private static AdaptiveDemand demand(int initial, int min, int max, Duration targetLatency) {
+		var limits = new DemandProperties.Limits();
+		limits.setInitial(initial);
+		limits.setMin(min);
+		limits.setMax(max);
+		limits.setTargetLatency(targetLatency);
+		var properties = new DemandProperties();
+		properties.setDefaults(limits);
+		return new AdaptiveDemand(properties);
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
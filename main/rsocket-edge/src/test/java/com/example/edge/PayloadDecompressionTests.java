@@ -0,0 +1,62 @@
+package com.example.edge;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.rsocket.Payload;
+import io.rsocket.metadata.CompositeMetadataFlyweight;
+import io.rsocket.metadata.WellKnownMimeType;
+import io.rsocket.util.ByteBufPayload;
+import net.jpountz.lz4.LZ4Factory;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PayloadDecompressionTests {
+
+	@Test
+	void inflatesWhatTheServiceCompresses() {
+		var json = new StringBuilder("[");
+		for (var id = 1; id <= 200; id++) {
+			json.append(id == 1 ? "" : ",").append("{\"id\":").append(id).append(",\"name\":\"Reservation ").append(id).append("\"}");
+		}
+		var data = json.append("]").toString();
+		var compressed = compress(data);
+		assertThat(compressed.sliceData().readableBytes()).isLessThan(data.length());
+
+		var decompressed = PayloadDecompression.decompress(compressed);
+		assertThat(decompressed.getDataUtf8()).isEqualTo(data);
+		decompressed.release();
+	}
+
+	@Test
+	void passesThroughUncompressedPayloads() {
+		var payload = ByteBufPayload.create("{\"id\":1,\"name\":\"Josh\"}");
+		assertThat(PayloadDecompression.decompress(payload)).isSameAs(payload);
+		payload.release();
+	}
+
+	/**
+	 * The service's {@code PayloadCompression.compress}: the original length, then the LZ4
+	 * block, with a compression entry added to whatever composite metadata there was.
+	 */
+	private static Payload compress(String data) {
+		var bytes = data.getBytes(StandardCharsets.UTF_8);
+		var compressor = LZ4Factory.fastestInstance().fastCompressor();
+		var maxLength = compressor.maxCompressedLength(bytes.length);
+		var compressed = ByteBufAllocator.DEFAULT.buffer(Integer.BYTES + maxLength);
+		compressed.writeInt(bytes.length);
+		var written = compressor.compress(Unpooled.wrappedBuffer(bytes).nioBuffer(), 0, bytes.length,
+				compressed.nioBuffer(Integer.BYTES, maxLength), 0, maxLength);
+		compressed.writerIndex(Integer.BYTES + written);
+		var metadata = ByteBufAllocator.DEFAULT.compositeBuffer();
+		CompositeMetadataFlyweight.encodeAndAddMetadata(metadata, ByteBufAllocator.DEFAULT, WellKnownMimeType.MESSAGE_RSOCKET_ROUTING,
+				ByteBufUtil.writeAscii(ByteBufAllocator.DEFAULT, "\u000creservations"));
+		CompositeMetadataFlyweight.encodeAndAddMetadata(metadata, ByteBufAllocator.DEFAULT, PayloadDecompression.MIME_TYPE,
+				ByteBufUtil.writeAscii(ByteBufAllocator.DEFAULT, PayloadDecompression.LZ4));
+		return ByteBufPayload.create(compressed, metadata);
+	}
+
+}
@@ -0,0 +1,303 @@
+package com.example.service;
+
+import io.rsocket.core.RSocketServer;
+import io.rsocket.exceptions.RejectedSetupException;
+import io.rsocket.transport.netty.server.CloseableChannel;
+import io.rsocket.transport.netty.server.TcpServerTransport;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes messages to every subscriber of a topic on every node of the cluster.
+ * Messages from one run of a node arrive in the order it published them, each at most
+ * once; there is no ordering between messages published on different nodes.
+ */
+interface ClusterBroadcast {
+
+    Mono<Void> publish(String topic, String message);
+
+    Flux<ClusterMessage> messages(String topic);
+}
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+class ClusterMessage {
+    private String topic;
+    private String origin;
+    /**
+     * Set anew each time the origin starts, so that its sequences, which start over,
+     * are not taken for duplicates of those it sent before a restart.
+     */
+    private String epoch;
+    private long sequence;
+    private String message;
+}
+
+@Data
+@ConfigurationProperties("service.cluster")
+class ClusterProperties {
+
+    /**
+     * Either 'loopback', which only reaches this node's subscribers, or 'mesh'.
+     */
+    private String mode = "loopback";
+    private String nodeId = UUID.randomUUID().toString();
+    private Mesh mesh = new Mesh();
+
+    @Data
+    static class Mesh {
+        /**
+         * The interface the mesh server binds to. Set it to a private interface the
+         * other nodes can reach; the mesh should never be exposed publicly.
+         */
+        private String host = "127.0.0.1";
+        private int port = 7777;
+        /**
+         * Shared by all nodes, which send it in their SETUP frame. Connections that
+         * present anything else are rejected. Required in mesh mode.
+         */
+        private String secret;
+        /**
+         * The other nodes' mesh addresses, as host:port.
+         */
+        private List<String> peers = new ArrayList<>();
+    }
+}
+
+@Configuration(proxyBeanMethods = false)
+class ClusterConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "service.cluster.mode", havingValue = "loopback", matchIfMissing = true)
+    LoopbackClusterBroadcast loopbackClusterBroadcast(ClusterProperties properties) {
+        return new LoopbackClusterBroadcast(properties.getNodeId());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "service.cluster.mode", havingValue = "mesh")
+    RSocketMeshClusterBroadcast rSocketMeshClusterBroadcast(ClusterProperties properties, RSocketStrategies strategies) {
+        return new RSocketMeshClusterBroadcast(properties, strategies);
+    }
+}
+
+@Log4j2
+@RequiredArgsConstructor
+class LoopbackClusterBroadcast implements ClusterBroadcast {
+
+    protected final String nodeId;
+
+    protected final String epoch = UUID.randomUUID().toString();
+
+    private final Map<String, AtomicLong> sequences = new ConcurrentHashMap<>();
+
+    private final Map<String, Long> delivered = new ConcurrentHashMap<>();
+
+    private final DirectProcessor<ClusterMessage> processor = DirectProcessor.create();
+
+    private final FluxSink<ClusterMessage> sink = this.processor.sink();
+
+    @Override
+    public Mono<Void> publish(String topic, String message) {
+        return Mono.fromRunnable(() -> {
+            synchronized (this.sequences.computeIfAbsent(topic, t -> new AtomicLong())) {
+                var published = new ClusterMessage(topic, this.nodeId, this.epoch, this.sequences.get(topic).incrementAndGet(), message);
+                deliver(published);
+                forward(published);
+            }
+        });
+    }
+
+    @Override
+    public Flux<ClusterMessage> messages(String topic) {
+        return this.processor
+                .filter(message -> message.getTopic().equals(topic))
+                .onBackpressureLatest();
+    }
+
+    protected void forward(ClusterMessage message) {
+    }
+
+    void deliver(ClusterMessage message) {
+        var key = message.getOrigin() + "/" + message.getEpoch() + "/" + message.getTopic();
+        var fresh = new boolean[1];
+        this.delivered.compute(key, (k, last) -> {
+            fresh[0] = last == null || message.getSequence() > last;
+            return fresh[0] ? message.getSequence() : last;
+        });
+        if (fresh[0]) {
+            this.sink.next(message);
+        }
+        else {
+            log.debug("dropping duplicate or late message " + message.getSequence() + " from " + key);
+        }
+    }
+}
+
+/**
+ * Forwards every published message to each configured peer with fire-and-forget over
+ * a dedicated RSocket TCP server that only answers 'cluster.broadcast', and only to
+ * peers that present the mesh's shared secret in their SETUP frame.
+ */
+@Log4j2
+class RSocketMeshClusterBroadcast extends LoopbackClusterBroadcast implements SmartLifecycle {
+
+    private final ClusterProperties.Mesh mesh;
+
+    private final RSocketStrategies strategies;
+
+    private final List<MeshPeer> peers;
+
+    private volatile CloseableChannel server;
+
+    RSocketMeshClusterBroadcast(ClusterProperties properties, RSocketStrategies strategies) {
+        super(properties.getNodeId());
+        this.mesh = properties.getMesh();
+        this.strategies = strategies;
+        if (!StringUtils.hasText(this.mesh.getSecret())) {
+            throw new IllegalStateException("service.cluster.mesh.secret must be set in mesh mode");
+        }
+        this.peers = this.mesh
+                .getPeers()
+                .stream()
+                .map(address -> new MeshPeer(address, this.mesh.getSecret(), strategies))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    protected void forward(ClusterMessage message) {
+        for (var peer : this.peers) {
+            peer.send(message);
+        }
+    }
+
+    @Override
+    public void start() {
+        var handler = new RSocketMessageHandler();
+        handler.setRSocketStrategies(this.strategies);
+        handler.setHandlers(List.of(new MeshReceiver(this)));
+        handler.afterPropertiesSet();
+        var secret = this.mesh.getSecret().getBytes(StandardCharsets.UTF_8);
+        this.server = RSocketServer
+                .create(handler.responder())
+                .interceptors(registry -> registry.forSocketAcceptor(acceptor -> (setup, sendingSocket) -> {
+                    var presented = new byte[setup.data().readableBytes()];
+                    setup.data().getBytes(setup.data().readerIndex(), presented);
+                    if (!MessageDigest.isEqual(secret, presented)) {
+                        return Mono.error(new RejectedSetupException("unknown cluster peer"));
+                    }
+                    return acceptor.accept(setup, sendingSocket);
+                }))
+                .bind(TcpServerTransport.create(this.mesh.getHost(), this.mesh.getPort()))
+                .block();
+        log.info("node " + this.nodeId + " listening for cluster broadcasts on " + this.server.address() + ", peers: " + this.mesh.getPeers());
+    }
+
+    @Override
+    public void stop() {
+        this.peers.forEach(MeshPeer::close);
+        if (this.server != null) {
+            this.server.dispose();
+            this.server = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.server != null;
+    }
+
+    @RequiredArgsConstructor
+    static class MeshReceiver {
+
+        private final LoopbackClusterBroadcast broadcast;
+
+        @MessageMapping("cluster.broadcast")
+        void receive(ClusterMessage message) {
+            this.broadcast.deliver(message);
+        }
+    }
+
+    @Log4j2
+    static class MeshPeer {
+
+        private final String address;
+
+        private final Mono<RSocketRequester> connect;
+
+        private final AtomicReference<Mono<RSocketRequester>> current = new AtomicReference<>();
+
+        MeshPeer(String address, String secret, RSocketStrategies strategies) {
+            var separator = address.lastIndexOf(':');
+            this.address = address;
+            this.connect = RSocketRequester
+                    .builder()
+                    .setupData(secret)
+                    .rsocketStrategies(strategies)
+                    .connectTcp(address.substring(0, separator), Integer.parseInt(address.substring(separator + 1)));
+        }
+
+        void send(ClusterMessage message) {
+            requester()
+                    .flatMap(requester -> requester.route("cluster.broadcast").data(message).send())
+                    .subscribe(null, error -> log.warn("could not forward message " + message.getSequence() + " to " + this.address + ": " + error.getMessage()));
+        }
+
+        void close() {
+            var connection = this.current.getAndSet(null);
+            if (connection != null) {
+                connection.subscribe(requester -> requester.rsocket().dispose(), error -> { });
+            }
+        }
+
+        private Mono<RSocketRequester> requester() {
+            while (true) {
+                var existing = this.current.get();
+                if (existing != null) {
+                    return existing;
+                }
+                var connection = new AtomicReference<Mono<RSocketRequester>>();
+                var fresh = this.connect
+                        .doOnNext(requester -> requester
+                                .rsocket()
+                                .onClose()
+                                .doFinally(signal -> this.current.compareAndSet(connection.get(), null))
+                                .subscribe(null, error -> { }))
+                        .doOnError(error -> this.current.compareAndSet(connection.get(), null))
+                        .cache();
+                connection.set(fresh);
+                if (this.current.compareAndSet(null, fresh)) {
+                    return fresh;
+                }
+            }
+        }
+    }
+}
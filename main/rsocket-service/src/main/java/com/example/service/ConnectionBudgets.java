@@ -0,0 +1,335 @@
+package com.example.service;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.rsocket.DuplexConnection;
+import io.rsocket.exceptions.ConnectionErrorException;
+import io.rsocket.frame.ErrorFrameFlyweight;
+import io.rsocket.frame.FrameHeaderFlyweight;
+import io.rsocket.frame.RequestNFrameFlyweight;
+import io.rsocket.plugins.DuplexConnectionInterceptor;
+import lombok.Data;
+import lombok.extern.log4j.Log4j2;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.rsocket.server.RSocketServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+import reactor.core.publisher.UnicastProcessor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Data
+@ConfigurationProperties("service.rsocket.connection")
+class ConnectionBudgetProperties {
+
+    /**
+     * Frames larger than this are sent as fragments, so one large payload doesn't hold
+     * up every other stream on its connection. Zero turns fragmentation off.
+     */
+    private DataSize mtu = DataSize.ofKilobytes(16);
+
+    /**
+     * Largest payload a client may send. Reassembly gives up on a fragmented payload as
+     * soon as it grows past this, and a connection that sends an unfragmented frame
+     * larger than this is closed.
+     */
+    private DataSize maxInboundFrameSize = DataSize.ofMegabytes(1);
+
+    /**
+     * Bytes a connection may have queued for sending before its streams stop being asked
+     * for more elements. They are asked again once half of it has been written.
+     */
+    private DataSize outboundBudget = DataSize.ofKilobytes(64);
+
+    /**
+     * Most demand passed on to a stream at a time, however much its client requested.
+     */
+    private int requestChunk = 64;
+}
+
+@Configuration(proxyBeanMethods = false)
+class ConnectionBudgetConfiguration {
+
+    @Bean
+    RSocketServerCustomizer connectionBudgets(ConnectionBudgetProperties properties) {
+        return server -> {
+            var mtu = (int) properties.getMtu().toBytes();
+            if (mtu > 0) {
+                server.fragment(mtu);
+            }
+            server.maxInboundPayloadSize((int) properties.getMaxInboundFrameSize().toBytes());
+            server.interceptors(registry -> registry.forConnection((type, connection) ->
+                    type == DuplexConnectionInterceptor.Type.SOURCE ? new BudgetedConnection(connection, properties) : connection));
+        };
+    }
+}
+
+/**
+ * Bounds the memory an RSocket connection holds. Inbound, frames over the maximum size
+ * close the connection. Outbound, the demand a client sends for the streams it started
+ * is passed on to them in chunks, and only while the frames the connection has queued
+ * for sending stay within its budget. A client that requests everything and then reads
+ * slowly therefore pauses the {@code GreetingService} ticks or repository queries behind
+ * its streams, rather than having their output pile up on the server.
+ */
+@Log4j2
+class BudgetedConnection implements DuplexConnection {
+
+    private final Map<Integer, Stream> streams = new HashMap<>();
+
+    private final AtomicLong queued = new AtomicLong();
+
+    private final UnicastProcessor<ByteBuf> granted = UnicastProcessor.create();
+
+    private final FluxSink<ByteBuf> grants = this.granted.sink();
+
+    private final DuplexConnection source;
+
+    private final long maxInboundFrameSize;
+
+    private final long budget;
+
+    private final int chunk;
+
+    private volatile boolean paused;
+
+    private volatile boolean rejected;
+
+    BudgetedConnection(DuplexConnection source, ConnectionBudgetProperties properties) {
+        this.source = source;
+        this.maxInboundFrameSize = properties.getMaxInboundFrameSize().toBytes();
+        this.budget = properties.getOutboundBudget().toBytes();
+        this.chunk = Math.max(2, properties.getRequestChunk());
+    }
+
+    @Override
+    public Mono<Void> send(Publisher<ByteBuf> frames) {
+        return this.source.send(Flux
+                .from(frames)
+                .doOnNext(this::queued)
+                .onBackpressureBuffer()
+                .doOnNext(this::written)
+                .doOnDiscard(ByteBuf.class, ByteBuf::release));
+    }
+
+    @Override
+    public Flux<ByteBuf> receive() {
+        return Flux.merge(
+                this.source.receive().handle(this::received).doFinally(signal -> this.grants.complete()),
+                this.granted.doOnDiscard(ByteBuf.class, ByteBuf::release));
+    }
+
+    @Override
+    public ByteBufAllocator alloc() {
+        return this.source.alloc();
+    }
+
+    @Override
+    public double availability() {
+        return this.source.availability();
+    }
+
+    @Override
+    public Mono<Void> onClose() {
+        return this.source.onClose();
+    }
+
+    @Override
+    public void dispose() {
+        this.source.dispose();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return this.source.isDisposed();
+    }
+
+    /**
+     * Frames of streams the server started, and of the connection itself (stream 0),
+     * have even stream ids and pass through untouched. A client ends a stream it started
+     * by cancelling it or, for a channel, by sending an error.
+     */
+    private void received(ByteBuf frame, SynchronousSink<ByteBuf> sink) {
+        if (this.rejected) {
+            frame.release();
+            return;
+        }
+        if (frame.readableBytes() > this.maxInboundFrameSize) {
+            var size = frame.readableBytes();
+            frame.release();
+            reject(size);
+            return;
+        }
+        var streamId = FrameHeaderFlyweight.streamId(frame);
+        if (streamId % 2 == 0) {
+            sink.next(frame);
+            return;
+        }
+        switch (FrameHeaderFlyweight.frameType(frame)) {
+            case REQUEST_STREAM:
+            case REQUEST_CHANNEL:
+                var offset = FrameHeaderFlyweight.size();
+                frame.setInt(offset, (int) opened(streamId, frame.getInt(offset)));
+                break;
+            case REQUEST_N:
+                var n = RequestNFrameFlyweight.requestN(frame);
+                frame.release();
+                var grant = requested(streamId, n);
+                if (grant > 0) {
+                    sink.next(requestN(streamId, grant));
+                }
+                return;
+            case CANCEL:
+            case ERROR:
+                closed(streamId);
+                break;
+            default:
+        }
+        sink.next(frame);
+    }
+
+    private void queued(ByteBuf frame) {
+        this.queued.addAndGet(frame.readableBytes());
+        var streamId = FrameHeaderFlyweight.streamId(frame);
+        if (streamId % 2 == 0) {
+            return;
+        }
+        switch (FrameHeaderFlyweight.frameType(frame)) {
+            case NEXT:
+                emitted(streamId);
+                break;
+            case NEXT_COMPLETE:
+            case COMPLETE:
+            case ERROR:
+                closed(streamId);
+                break;
+            default:
+        }
+    }
+
+    private void written(ByteBuf frame) {
+        var queued = this.queued.addAndGet(-frame.readableBytes());
+        if (this.paused && queued <= this.budget / 2) {
+            resume();
+        }
+    }
+
+    /**
+     * @return the initial demand to pass on, at least one as a request must ask for one
+     */
+    private synchronized long opened(int streamId, int initial) {
+        var stream = new Stream();
+        stream.owed = initial == Integer.MAX_VALUE ? Long.MAX_VALUE : initial;
+        this.streams.put(streamId, stream);
+        var n = pass(stream);
+        if (n == 0) {
+            stream.owed = stream.owed == Long.MAX_VALUE ? Long.MAX_VALUE : stream.owed - 1;
+            stream.passed = 1;
+            n = 1;
+        }
+        return n;
+    }
+
+    private synchronized long requested(int streamId, int n) {
+        var stream = this.streams.get(streamId);
+        if (stream == null) {
+            return n;
+        }
+        stream.owed = n == Integer.MAX_VALUE || stream.owed > Long.MAX_VALUE - n ? Long.MAX_VALUE : stream.owed + n;
+        return pass(stream);
+    }
+
+    private void emitted(int streamId) {
+        long n;
+        synchronized (this) {
+            var stream = this.streams.get(streamId);
+            if (stream == null) {
+                return;
+            }
+            stream.passed = Math.max(0, stream.passed - 1);
+            n = pass(stream);
+        }
+        if (n > 0) {
+            this.grants.next(requestN(streamId, n));
+        }
+    }
+
+    private synchronized void closed(int streamId) {
+        this.streams.remove(streamId);
+    }
+
+    private void resume() {
+        var grants = new ArrayList<ByteBuf>();
+        synchronized (this) {
+            if (!this.paused || !hasRoom()) {
+                return;
+            }
+            this.streams.forEach((streamId, stream) -> {
+                var n = pass(stream);
+                if (n > 0) {
+                    grants.add(requestN(streamId, n));
+                }
+            });
+        }
+        grants.forEach(this.grants::next);
+    }
+
+    /**
+     * Passes on as much of the stream's owed demand as tops it up to a chunk, once it
+     * has used half of what it was given and while the connection has room.
+     */
+    private long pass(Stream stream) {
+        if (stream.owed == 0 || stream.passed > this.chunk / 2 || !hasRoom()) {
+            return 0;
+        }
+        var n = Math.min(stream.owed, this.chunk - stream.passed);
+        if (stream.owed != Long.MAX_VALUE) {
+            stream.owed -= n;
+        }
+        stream.passed += n;
+        return n;
+    }
+
+    private boolean hasRoom() {
+        var queued = this.queued.get();
+        this.paused = this.paused ? queued > this.budget / 2 : queued >= this.budget;
+        return !this.paused;
+    }
+
+    private ByteBuf requestN(int streamId, long n) {
+        return RequestNFrameFlyweight.encode(this.source.alloc(), streamId, (int) n);
+    }
+
+    private void reject(int size) {
+        this.rejected = true;
+        var message = "a frame of " + size + " bytes is larger than the " + this.maxInboundFrameSize + " allowed";
+        log.warn("closing connection: " + message);
+        this.source
+                .sendOne(ErrorFrameFlyweight.encode(this.source.alloc(), 0, new ConnectionErrorException(message)))
+                .onErrorResume(error -> Mono.empty())
+                .doFinally(signal -> this.source.dispose())
+                .subscribe();
+    }
+
+    private static class Stream {
+
+        /**
+         * Demand the client sent that hasn't been passed on yet.
+         */
+        private long owed;
+
+        /**
+         * Demand passed on that the stream hasn't used yet.
+         */
+        private long passed;
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.service;
+
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.exceptions.RejectedException;
+import io.rsocket.exceptions.RejectedSetupException;
+import io.rsocket.plugins.SocketAcceptorInterceptor;
+import io.rsocket.util.RSocketProxy;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.autoconfigure.context.LifecycleProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.rsocket.server.RSocketServerCustomizer;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Data
+@ConfigurationProperties("service.drain")
+class DrainProperties {
+
+    /**
+     * Connections and sessions are closed at random times spread over this window. It is
+     * shortened if it and the request timeout don't fit in
+     * {@code spring.lifecycle.timeout-per-shutdown-phase}.
+     */
+    private Duration window = Duration.ofSeconds(10);
+
+    /**
+     * Longest a connection's in-flight request-response calls may hold up its close.
+     */
+    private Duration requestTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Where clients should reconnect, passed along in RSocket errors and WebSocket close
+     * reasons. Clients fall back to their own address list when empty.
+     */
+    private String redirect = "";
+}
+
+@Configuration(proxyBeanMethods = false)
+class ConnectionDrainingConfiguration {
+
+    @Bean
+    RSocketServerCustomizer connectionDraining(ConnectionDrainer drainer) {
+        return server -> server.interceptors(registry -> registry.forSocketAcceptor(drainer.rsocketConnections()));
+    }
+}
+
+/**
+ * Drains RSocket connections and WebSocket sessions when the application context
+ * closes, before the servers stop. New connections and sessions are refused straight
+ * away; the open ones are closed one by one at random times within the drain window
+ * so their clients reconnect elsewhere gradually rather than all at once. Before an
+ * RSocket connection closes its streams end with a REJECTED error carrying the
+ * redirect hint, new requests on it are rejected, and its in-flight request-response
+ * calls get to finish. WebSocket sessions are closed with 1001 Going Away. The whole
+ * drain takes no longer than one shutdown phase is allowed to.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+class ConnectionDrainer implements ApplicationListener<ContextClosedEvent> {
+
+    private final Set<DrainingRSocket> connections = ConcurrentHashMap.newKeySet();
+
+    private final Set<WebSocketSession> sessions = ConcurrentHashMap.newKeySet();
+
+    private final DrainProperties properties;
+
+    private final LifecycleProperties lifecycle;
+
+    private volatile boolean draining;
+
+    SocketAcceptorInterceptor rsocketConnections() {
+        return acceptor -> (setup, sendingSocket) -> {
+            if (this.draining) {
+                return Mono.error(new RejectedSetupException(message()));
+            }
+            return acceptor
+                    .accept(setup, sendingSocket)
+                    .map(responder -> {
+                        var connection = new DrainingRSocket(responder, sendingSocket);
+                        this.connections.add(connection);
+                        sendingSocket.onClose().doFinally(signal -> this.connections.remove(connection)).subscribe(null, error -> { });
+                        return connection;
+                    });
+        };
+    }
+
+    Mono<Void> webSocketSession(WebSocketSession session, Mono<Void> handling) {
+        if (this.draining) {
+            return session.close(closeStatus());
+        }
+        this.sessions.add(session);
+        return handling.doFinally(signal -> this.sessions.remove(session));
+    }
+
+    @Override
+    public void onApplicationEvent(ContextClosedEvent event) {
+        this.draining = true;
+        var timeout = this.lifecycle.getTimeoutPerShutdownPhase();
+        var window = this.properties.getWindow();
+        var latest = timeout.minus(this.properties.getRequestTimeout());
+        if (window.compareTo(latest) > 0) {
+            window = latest.isNegative() ? Duration.ZERO : latest;
+            log.warn("service.drain.window shortened to " + window + " to finish within the " + timeout + " shutdown phase timeout");
+        }
+        var closes = new ArrayList<Mono<Void>>();
+        for (var connection : this.connections) {
+            closes.add(Mono.delay(randomWithin(window)).then(connection.drain()));
+        }
+        for (var session : this.sessions) {
+            closes.add(Mono.delay(randomWithin(window)).then(session.close(closeStatus())));
+        }
+        log.info("draining " + this.connections.size() + " RSocket connection(s) and " + this.sessions.size() + " WebSocket session(s) over " + window);
+        try {
+            Flux
+                    .merge(closes)
+                    .onErrorContinue((error, value) -> log.debug("error while draining: " + error.getMessage()))
+                    .then()
+                    .block(timeout);
+            log.info("drained");
+        }
+        catch (IllegalStateException e) {
+            log.warn("stopped draining after " + timeout + ", closing the remaining connections with the servers");
+        }
+    }
+
+    private static Duration randomWithin(Duration window) {
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(Math.max(1, window.toMillis())));
+    }
+
+    private String message() {
+        return StringUtils.hasText(this.properties.getRedirect()) ? "draining; reconnect to " + this.properties.getRedirect() : "draining";
+    }
+
+    private CloseStatus closeStatus() {
+        return CloseStatus.GOING_AWAY.withReason(message());
+    }
+
+    class DrainingRSocket extends RSocketProxy {
+
+        private final RSocket sendingSocket;
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private final MonoProcessor<Boolean> drained = MonoProcessor.create();
+
+        private volatile boolean closing;
+
+        DrainingRSocket(RSocket source, RSocket sendingSocket) {
+            super(source);
+            this.sendingSocket = sendingSocket;
+        }
+
+        Mono<Void> drain() {
+            return Mono.defer(() -> {
+                this.closing = true;
+                this.drained.onNext(true);
+                return Flux
+                        .interval(Duration.ofMillis(50))
+                        .takeUntil(tick -> this.inFlight.get() == 0)
+                        .then()
+                        .timeout(properties.getRequestTimeout(), Mono.empty())
+                        .doFinally(signal -> this.sendingSocket.dispose());
+            });
+        }
+
+        @Override
+        public Mono<Void> fireAndForget(Payload payload) {
+            if (this.closing) {
+                payload.release();
+                return Mono.error(new RejectedException(message()));
+            }
+            return super.fireAndForget(payload);
+        }
+
+        @Override
+        public Mono<Payload> requestResponse(Payload payload) {
+            if (this.closing) {
+                payload.release();
+                return Mono.error(new RejectedException(message()));
+            }
+            return super
+                    .requestResponse(payload)
+                    .doOnSubscribe(subscription -> this.inFlight.incrementAndGet())
+                    .doFinally(signal -> this.inFlight.decrementAndGet());
+        }
+
+        @Override
+        public Flux<Payload> requestStream(Payload payload) {
+            if (this.closing) {
+                payload.release();
+                return Flux.error(new RejectedException(message()));
+            }
+            return super
+                    .requestStream(payload)
+                    .takeUntilOther(this.drained)
+                    .concatWith(Flux.defer(() -> this.closing ? Flux.error(new RejectedException(message())) : Flux.empty()));
+        }
+
+        @Override
+        public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
+            if (this.closing) {
+                return Flux.error(new RejectedException(message()));
+            }
+            return super
+                    .requestChannel(payloads)
+                    .takeUntilOther(this.drained)
+                    .concatWith(Flux.defer(() -> this.closing ? Flux.error(new RejectedException(message())) : Flux.empty()));
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.example.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Controller;
+import reactor.core.Disposable;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Data
+@ConfigurationProperties("service.ingest")
+class IngestProperties {
+
+    /**
+     * Events held in memory waiting to be written. Events that arrive while it is full
+     * are dropped and counted.
+     */
+    private int bufferSize = 65_536;
+
+    /**
+     * Most events written by one INSERT. A batch is written as soon as this many events
+     * are buffered, without waiting for the flush interval.
+     */
+    private int batchSize = 1_000;
+
+    /**
+     * Longest an event waits in the buffer before its batch is written.
+     */
+    private Duration flushInterval = Duration.ofMillis(100);
+
+    /**
+     * Events per receipt on the 'events.ingest.channel' route.
+     */
+    private int receiptEvery = 1_000;
+}
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+class IngestEvent {
+    private String type;
+    private String source;
+    private long timestamp;
+    private String payload;
+}
+
+/**
+ * How many of the events sent on a channel since the previous receipt were buffered and
+ * how many were dropped because the buffer was full.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+class IngestReceipt {
+    private long accepted;
+    private long dropped;
+}
+
+/**
+ * Buffers ingested events in a bounded ring buffer and writes them to the {@code event}
+ * table in batches of at most {@code batch-size}, as soon as a full batch is buffered and
+ * otherwise at least every {@code flush-interval}.
+ * Each batch is one INSERT of four unnested arrays, so the statement text never changes
+ * with the batch size. Batches are written one at a time; while the database falls
+ * behind, the buffer fills up and new events are dropped rather than queued without
+ * bound.
+ *
+ * <pre>
+ * create table event (
+ *     id bigserial primary key,
+ *     type text not null,
+ *     source text,
+ *     occurred_at timestamptz not null,
+ *     payload text
+ * );
+ * </pre>
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+class EventIngestion implements SmartLifecycle, MeterBinder {
+
+    static final String INSERT = "insert into event (type, source, occurred_at, payload) " +
+            "select type, source, to_timestamp(occurred_at / 1000.0), payload " +
+            "from unnest($1::text[], $2::text[], $3::bigint[], $4::text[]) as e (type, source, occurred_at, payload)";
+
+    private final AtomicLong received = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final AtomicLong persisted = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private final AtomicBoolean batchFull = new AtomicBoolean();
+
+    private final DirectProcessor<Long> fullBatches = DirectProcessor.create();
+
+    private final FluxSink<Long> fullBatchSignals = this.fullBatches.sink();
+
+    private final IngestProperties properties;
+
+    private final DatabaseClient databaseClient;
+
+    private volatile BlockingQueue<IngestEvent> buffer;
+
+    private volatile Scheduler scheduler;
+
+    private volatile Disposable flushing;
+
+    /**
+     * @return whether the event was buffered, or else dropped
+     */
+    boolean accept(IngestEvent event) {
+        this.received.incrementAndGet();
+        var buffer = this.buffer;
+        if (buffer != null && buffer.offer(event)) {
+            if (buffer.size() >= this.properties.getBatchSize() && this.batchFull.compareAndSet(false, true)) {
+                this.fullBatchSignals.next(1L);
+            }
+            return true;
+        }
+        this.dropped.incrementAndGet();
+        return false;
+    }
+
+    @Override
+    public void start() {
+        this.buffer = new ArrayBlockingQueue<>(this.properties.getBufferSize());
+        this.scheduler = Schedulers.newSingle("service-ingest", true);
+        this.flushing = Flux
+                .merge(Flux.interval(this.properties.getFlushInterval(), this.scheduler), this.fullBatches.onBackpressureLatest())
+                .onBackpressureLatest()
+                .publishOn(this.scheduler, 1)
+                .concatMap(tick -> flush(), 1)
+                .subscribe();
+    }
+
+    @Override
+    public void stop() {
+        if (this.flushing == null) {
+            return;
+        }
+        this.flushing.dispose();
+        this.flushing = null;
+        flush().block(Duration.ofSeconds(30));
+        this.scheduler.dispose();
+        log.info("ingestion stopped: " + this.received + " received, " + this.persisted + " persisted, " +
+                this.dropped + " dropped, " + this.failed + " failed");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.flushing != null;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        counter(registry, "received", this.received);
+        counter(registry, "dropped", this.dropped);
+        counter(registry, "persisted", this.persisted);
+        counter(registry, "failed", this.failed);
+        Gauge
+                .builder("service.ingest.buffered", this, ingestion -> ingestion.buffer == null ? 0 : ingestion.buffer.size())
+                .description("events waiting to be written")
+                .register(registry);
+    }
+
+    private void counter(MeterRegistry registry, String outcome, AtomicLong count) {
+        FunctionCounter
+                .builder("service.ingest.events", count, AtomicLong::get)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    /**
+     * Writes everything buffered right now, one batch after the other. Events that fill
+     * a batch from here on signal another flush.
+     */
+    private Mono<Void> flush() {
+        this.batchFull.set(false);
+        var batchSize = this.properties.getBatchSize();
+        return Flux
+                .<List<IngestEvent>>generate(sink -> {
+                    var batch = new ArrayList<IngestEvent>(batchSize);
+                    this.buffer.drainTo(batch, batchSize);
+                    if (batch.isEmpty()) {
+                        sink.complete();
+                        return;
+                    }
+                    sink.next(batch);
+                    if (batch.size() < batchSize) {
+                        sink.complete();
+                    }
+                })
+                .concatMap(this::persist, 1)
+                .then();
+    }
+
+    private Mono<Void> persist(List<IngestEvent> batch) {
+        return insert(batch)
+                .doOnNext(rows -> this.persisted.addAndGet(rows))
+                .onErrorResume(error -> {
+                    this.failed.addAndGet(batch.size());
+                    log.warn("could not write " + batch.size() + " events: " + error.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * @return the number of rows written
+     */
+    Mono<Integer> insert(List<IngestEvent> batch) {
+        var types = new String[batch.size()];
+        var sources = new String[batch.size()];
+        var timestamps = new Long[batch.size()];
+        var payloads = new String[batch.size()];
+        for (var i = 0; i < batch.size(); i++) {
+            var event = batch.get(i);
+            types[i] = event.getType();
+            sources[i] = event.getSource();
+            timestamps[i] = event.getTimestamp();
+            payloads[i] = event.getPayload();
+        }
+        return this.databaseClient
+                .execute(INSERT)
+                .bind(0, types)
+                .bind(1, sources)
+                .bind(2, timestamps)
+                .bind(3, payloads)
+                .fetch()
+                .rowsUpdated();
+    }
+}
+
+@Controller
+@RequiredArgsConstructor
+class EventIngestionController {
+
+    private final EventIngestion eventIngestion;
+
+    private final IngestProperties properties;
+
+    @MessageMapping("events.ingest")
+    void ingest(IngestEvent event) {
+        eventIngestion.accept(event);
+    }
+
+    @MessageMapping("events.ingest.channel")
+    Flux<IngestReceipt> ingest(Flux<IngestEvent> events) {
+        return events
+                .map(eventIngestion::accept)
+                .window(properties.getReceiptEvery())
+                .concatMap(window -> window.reduce(new IngestReceipt(), (receipt, accepted) -> {
+                    if (accepted) {
+                        receipt.setAccepted(receipt.getAccepted() + 1);
+                    }
+                    else {
+                        receipt.setDropped(receipt.getDropped() + 1);
+                    }
+                    return receipt;
+                }));
+    }
+}
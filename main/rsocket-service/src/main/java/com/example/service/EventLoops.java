@@ -0,0 +1,316 @@
+package com.example.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.rsocket.netty.NettyRSocketServerFactory;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorResourceFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+@Data
+@ConfigurationProperties("service.event-loops")
+class EventLoopProperties {
+
+    /**
+     * Whether the HTTP and RSocket servers share one set of event loops.
+     */
+    private boolean shared = false;
+
+    private int httpThreads = Runtime.getRuntime().availableProcessors();
+
+    private int rsocketThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Threads of the scheduler that times greeting stream ticks.
+     */
+    private int tickThreads = 1;
+
+    /**
+     * Use epoll (or kqueue) when the native transport is on the classpath.
+     */
+    private boolean nativeTransport = true;
+
+    /**
+     * How often a probe task is queued on every event loop and tick thread to measure lag.
+     */
+    private Duration lagProbeInterval = Duration.ofSeconds(1);
+}
+
+@Configuration(proxyBeanMethods = false)
+class EventLoopConfiguration {
+
+    @Bean
+    EventLoops eventLoops(EventLoopProperties properties) {
+        return new EventLoops(properties);
+    }
+
+    @Bean
+    static BeanPostProcessor eventLoopServers(ObjectProvider<EventLoops> eventLoops) {
+        return new BeanPostProcessor() {
+
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof NettyReactiveWebServerFactory) {
+                    ((NettyReactiveWebServerFactory) bean).setResourceFactory(eventLoops.getObject().getHttp());
+                }
+                if (bean instanceof NettyRSocketServerFactory) {
+                    ((NettyRSocketServerFactory) bean).setResourceFactory(eventLoops.getObject().getRsocket());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    EventLoopSaturation eventLoopSaturation(EventLoops eventLoops, EventLoopProperties properties) {
+        return new EventLoopSaturation(eventLoops, properties.getLagProbeInterval());
+    }
+}
+
+/**
+ * The service's thread topology: the event loops of the HTTP and RSocket servers,
+ * either separate or shared, and the scheduler that times stream ticks so that timers
+ * never queue behind I/O or behind {@link Schedulers#parallel()} work.
+ */
+@Log4j2
+@Getter
+class EventLoops implements DisposableBean {
+
+    private final ReactorResourceFactory http;
+
+    private final ReactorResourceFactory rsocket;
+
+    private final Scheduler ticks;
+
+    private final List<NamedLoops> loops = new ArrayList<>();
+
+    EventLoops(EventLoopProperties properties) {
+        var nativeTransport = properties.isNativeTransport();
+        if (properties.isShared()) {
+            var io = loops("service-io", properties.getHttpThreads(), nativeTransport);
+            this.http = io;
+            this.rsocket = io;
+        }
+        else {
+            this.http = loops("service-http", properties.getHttpThreads(), nativeTransport);
+            this.rsocket = loops("service-rsocket", properties.getRsocketThreads(), nativeTransport);
+        }
+        this.ticks = Schedulers.newParallel("service-ticks", properties.getTickThreads(), true);
+        log.info("event loops: " + this.loops + ", " + properties.getTickThreads() + " tick thread(s)");
+    }
+
+    private ReactorResourceFactory loops(String name, int threads, boolean nativeTransport) {
+        var loops = new PreferNativeLoopResources(LoopResources.create(name, 1, threads, true), nativeTransport);
+        var factory = new ReactorResourceFactory();
+        factory.setUseGlobalResources(false);
+        factory.setLoopResources(loops);
+        factory.afterPropertiesSet();
+        this.loops.add(new NamedLoops(name, loops));
+        return factory;
+    }
+
+    @Override
+    public void destroy() {
+        this.ticks.dispose();
+        this.http.destroy();
+        if (this.rsocket != this.http) {
+            this.rsocket.destroy();
+        }
+        for (var named : this.loops) {
+            named.loops.disposeLater().block(Duration.ofSeconds(10));
+        }
+    }
+
+    @RequiredArgsConstructor
+    static class NamedLoops {
+
+        final String name;
+
+        final PreferNativeLoopResources loops;
+
+        EventLoopGroup workers() {
+            return this.loops.onServer(this.loops.nativeTransport);
+        }
+
+        @Override
+        public String toString() {
+            return this.name + (this.loops.nativeTransport && LoopResources.hasNativeSupport() ? " (native)" : " (nio)");
+        }
+    }
+
+    /**
+     * Reactor Netty picks native or NIO groups per call site; this pins the choice for
+     * every server that runs on these loops so they all share one set of groups.
+     */
+    @RequiredArgsConstructor
+    static class PreferNativeLoopResources implements LoopResources {
+
+        private final LoopResources delegate;
+
+        private final boolean nativeTransport;
+
+        @Override
+        public EventLoopGroup onClient(boolean useNative) {
+            return this.delegate.onClient(this.nativeTransport);
+        }
+
+        @Override
+        public EventLoopGroup onServer(boolean useNative) {
+            return this.delegate.onServer(this.nativeTransport);
+        }
+
+        @Override
+        public EventLoopGroup onServerSelect(boolean useNative) {
+            return this.delegate.onServerSelect(this.nativeTransport);
+        }
+
+        @Override
+        public boolean preferNative() {
+            return this.nativeTransport && LoopResources.hasNativeSupport();
+        }
+
+        @Override
+        public boolean daemon() {
+            return this.delegate.daemon();
+        }
+
+        @Override
+        public void dispose() {
+            this.delegate.dispose();
+        }
+
+        @Override
+        public Mono<Void> disposeLater() {
+            return this.delegate.disposeLater();
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return this.delegate.isDisposed();
+        }
+    }
+}
+
+/**
+ * Publishes, per event loop and tick thread, the number of tasks waiting to run and the
+ * lag of a probe task queued every {@code lag-probe-interval}: how long it sat behind
+ * other work before it ran. Lag that grows while the pending count stays high means the
+ * thread is saturated and every channel on it is slowed down.
+ */
+@Log4j2
+@RequiredArgsConstructor
+class EventLoopSaturation implements MeterBinder, SmartLifecycle {
+
+    private final List<Probe> probes = new ArrayList<>();
+
+    private final EventLoops eventLoops;
+
+    private final Duration interval;
+
+    private volatile Disposable probing;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (var probe : probes()) {
+            var tags = Tags.of("loop", probe.loop, "thread", String.valueOf(probe.index));
+            Gauge
+                    .builder("service.event-loop.lag", probe.lag, lag -> lag.get() / 1e9)
+                    .tags(tags)
+                    .baseUnit("seconds")
+                    .description("time the last probe task waited before running")
+                    .register(registry);
+            if (probe.executor != null) {
+                Gauge
+                        .builder("service.event-loop.pending-tasks", probe.executor, SingleThreadEventExecutor::pendingTasks)
+                        .tags(tags)
+                        .description("tasks queued on the event loop")
+                        .register(registry);
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        var probes = probes();
+        this.probing = Schedulers.single().schedulePeriodically(() -> probes.forEach(Probe::send),
+                this.interval.toNanos(), this.interval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void stop() {
+        if (this.probing != null) {
+            this.probing.dispose();
+            this.probing = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.probing != null;
+    }
+
+    private synchronized List<Probe> probes() {
+        if (this.probes.isEmpty()) {
+            for (var named : this.eventLoops.getLoops()) {
+                var index = 0;
+                for (var executor : named.workers()) {
+                    var single = executor instanceof SingleThreadEventExecutor ? (SingleThreadEventExecutor) executor : null;
+                    this.probes.add(new Probe(named.name, index++, single, executor::execute));
+                }
+            }
+            var ticks = this.eventLoops.getTicks();
+            this.probes.add(new Probe("service-ticks", 0, null, task -> ticks.schedule(task)));
+        }
+        return this.probes;
+    }
+
+    @RequiredArgsConstructor
+    private static class Probe {
+
+        private final String loop;
+
+        private final int index;
+
+        private final SingleThreadEventExecutor executor;
+
+        private final Consumer<Runnable> submit;
+
+        private final AtomicLong lag = new AtomicLong();
+
+        void send() {
+            var queued = System.nanoTime();
+            try {
+                this.submit.accept(() -> this.lag.set(System.nanoTime() - queued));
+            }
+            catch (RuntimeException e) {
+                log.debug("could not probe " + this.loop + "-" + this.index + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.Principal;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.function.Function;
+
+@Data
+@ConfigurationProperties("service.jfr")
+class FlightRecorderProperties {
+
+    /**
+     * Whether streams, queries and WebSocket sessions emit events at all. Events that are
+     * emitted cost next to nothing unless a recording has them enabled.
+     */
+    private boolean enabled = true;
+
+    private InProcessRecording recording = new InProcessRecording();
+
+    @Data
+    static class InProcessRecording {
+
+        /**
+         * Start an in-process recording with the default JDK settings plus
+         * {@code service.jfc}, dumped to {@link #destination} when the service stops.
+         */
+        private boolean enabled = false;
+        private String destination = "service.jfr";
+        private Duration maxAge = Duration.ofHours(1);
+        private Duration streamThreshold = Duration.ofMillis(0);
+        private Duration queryThreshold = Duration.ofMillis(20);
+        private Duration webSocketThreshold = Duration.ofMillis(0);
+    }
+}
+
+@Name(RSocketStreamEvent.NAME)
+@Label("RSocket Stream")
+@Category({"Service", "RSocket"})
+@Description("An RSocket response stream, from subscription until it completes, fails or is cancelled")
+@StackTrace(false)
+class RSocketStreamEvent extends Event {
+
+    static final String NAME = "com.example.service.RSocketStream";
+
+    @Label("Route")
+    String route;
+
+    @Label("Principal")
+    String principal;
+
+    @Label("Elements")
+    long elements;
+
+    @Label("Outcome")
+    String outcome;
+}
+
+@Name(R2dbcQueryEvent.NAME)
+@Label("R2DBC Query")
+@Category({"Service", "R2DBC"})
+@Description("A repository query, from subscription until its last row")
+@StackTrace(false)
+class R2dbcQueryEvent extends Event {
+
+    static final String NAME = "com.example.service.R2dbcQuery";
+
+    @Label("Query")
+    String query;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Outcome")
+    String outcome;
+}
+
+@Name(WebSocketSessionEvent.NAME)
+@Label("WebSocket Session")
+@Category({"Service", "WebSocket"})
+@Description("A WebSocket session, from handshake until it closes")
+@StackTrace(false)
+class WebSocketSessionEvent extends Event {
+
+    static final String NAME = "com.example.service.WebSocketSession";
+
+    @Label("Session Id")
+    String sessionId;
+
+    @Label("Principal")
+    String principal;
+
+    @Label("Messages Received")
+    long received;
+
+    @Label("Messages Sent")
+    long sent;
+
+    @Label("Outcome")
+    String outcome;
+}
+
+/**
+ * Wraps streams, repository queries and WebSocket sessions in Flight Recorder events
+ * that begin on subscription and are committed when the publisher terminates or is
+ * cancelled. JFR drops events below the threshold of the running recording, so short
+ * streams and fast queries cost nothing beyond a timestamp.
+ */
+@Component
+@RequiredArgsConstructor
+class FlightRecorderEvents {
+
+    private final FlightRecorderProperties properties;
+
+    <T> Function<Flux<T>, Flux<T>> stream(String route) {
+        if (!this.properties.isEnabled()) {
+            return Function.identity();
+        }
+        return flux -> ReactiveSecurityContextHolder
+                .getContext()
+                .map(context -> context.getAuthentication().getName())
+                .defaultIfEmpty("anonymous")
+                .flatMapMany(principal -> {
+                    var event = new RSocketStreamEvent();
+                    event.route = route;
+                    event.principal = principal;
+                    event.begin();
+                    return flux
+                            .doOnNext(element -> event.elements++)
+                            .doFinally(signal -> {
+                                event.outcome = signal.toString();
+                                event.commit();
+                            });
+                });
+    }
+
+    <T> Function<Flux<T>, Flux<T>> query(String query) {
+        if (!this.properties.isEnabled()) {
+            return Function.identity();
+        }
+        return flux -> Flux.defer(() -> {
+            var event = new R2dbcQueryEvent();
+            event.query = query;
+            event.begin();
+            return flux
+                    .doOnNext(row -> event.rows++)
+                    .doFinally(signal -> {
+                        event.outcome = signal.toString();
+                        event.commit();
+                    });
+        });
+    }
+
+    /**
+     * @param handler handles the session, counting messages in the event's
+     *                {@code received} and {@code sent} fields
+     */
+    Mono<Void> webSocketSession(WebSocketSession session, Function<WebSocketSessionEvent, Mono<Void>> handler) {
+        return session
+                .getHandshakeInfo()
+                .getPrincipal()
+                .map(Principal::getName)
+                .defaultIfEmpty("anonymous")
+                .flatMap(principal -> {
+                    var event = new WebSocketSessionEvent();
+                    event.sessionId = session.getId();
+                    event.principal = principal;
+                    event.begin();
+                    return handler
+                            .apply(event)
+                            .doFinally(signal -> {
+                                event.outcome = signal.toString();
+                                if (this.properties.isEnabled()) {
+                                    event.commit();
+                                }
+                            });
+                });
+    }
+}
+
+/**
+ * An in-process recording with the JDK's default settings plus the service's own events,
+ * kept on disk for {@code max-age} and dumped to {@code destination} on shutdown.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty("service.jfr.recording.enabled")
+class FlightRecording implements SmartLifecycle {
+
+    static final String PROFILE = "service.jfc";
+
+    private final FlightRecorderProperties properties;
+
+    private volatile Recording recording;
+
+    @Override
+    public void start() {
+        var settings = this.properties.getRecording();
+        try (var reader = new InputStreamReader(new ClassPathResource(PROFILE).getInputStream(), StandardCharsets.UTF_8)) {
+            var merged = new HashMap<>(Configuration.getConfiguration("default").getSettings());
+            merged.putAll(Configuration.create(reader).getSettings());
+            var recording = new Recording(merged);
+            recording.setName("service");
+            recording.enable(RSocketStreamEvent.NAME).withThreshold(settings.getStreamThreshold());
+            recording.enable(R2dbcQueryEvent.NAME).withThreshold(settings.getQueryThreshold());
+            recording.enable(WebSocketSessionEvent.NAME).withThreshold(settings.getWebSocketThreshold());
+            recording.setToDisk(true);
+            recording.setMaxAge(settings.getMaxAge());
+            recording.setDestination(Path.of(settings.getDestination()));
+            recording.start();
+            this.recording = recording;
+            log.info("flight recording started, dumping to " + Path.of(settings.getDestination()).toAbsolutePath() + " on shutdown");
+        }
+        catch (IOException | ParseException e) {
+            log.warn("could not start flight recording with " + PROFILE, e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        var recording = this.recording;
+        if (recording != null) {
+            this.recording = null;
+            recording.stop();
+            recording.close();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.recording != null;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Shares one greeting stream per name between all of its subscribers, and serializes
+ * each greeting at most once per data MIME type no matter how many connections it is
+ * written to. Greetings broadcast across the cluster are shared by every subscriber.
+ * Slow subscribers skip to the latest greeting rather than holding the others back.
+ */
+@Component
+@RequiredArgsConstructor
+class GreetingFrames {
+
+    static final String BROADCAST_TOPIC = "greetings";
+
+    private final Map<String, Flux<GreetingFrame>> streams = new ConcurrentHashMap<>();
+
+    private final AtomicReference<Flux<GreetingFrame>> broadcasts = new AtomicReference<>();
+
+    private final GreetingService greetingService;
+
+    private final ClusterBroadcast clusterBroadcast;
+
+    private final RSocketStrategies strategies;
+
+    Flux<GreetingFrame> frames(String name) {
+        return Flux
+                .merge(greetings(name), broadcasts())
+                .onBackpressureLatest();
+    }
+
+    /**
+     * The greetings for every name that arrives, and from the first one on the
+     * broadcasts, which are merged in once however many names there are.
+     */
+    Flux<GreetingFrame> frames(Flux<String> names) {
+        return names
+                .publish(shared -> Flux.merge(shared.flatMap(this::greetings), shared.take(1).thenMany(broadcasts())))
+                .onBackpressureLatest();
+    }
+
+    private Flux<GreetingFrame> greetings(String name) {
+        return Flux.defer(() -> this.streams.computeIfAbsent(name, this::share));
+    }
+
+    private Flux<GreetingFrame> broadcasts() {
+        return Flux.defer(() -> this.broadcasts.updateAndGet(shared -> shared != null ? shared : this.clusterBroadcast
+                .messages(BROADCAST_TOPIC)
+                .map(message -> new GreetingFrame(new GreetingResponse(message.getMessage()), this.strategies))
+                .publish()
+                .refCount()));
+    }
+
+    private Flux<GreetingFrame> share(String name) {
+        var stream = new AtomicReference<Flux<GreetingFrame>>();
+        stream.set(this.greetingService
+                .greet(new GreetingRequest(name))
+                .map(response -> new GreetingFrame(response, this.strategies))
+                .doFinally(signal -> this.streams.remove(name, stream.get()))
+                .publish()
+                .refCount());
+        return stream.get();
+    }
+}
+
+@RequiredArgsConstructor
+class GreetingFrame {
+
+    private static final DataBufferFactory ENCODING_BUFFERS = new DefaultDataBufferFactory();
+
+    private static final ResolvableType TYPE = ResolvableType.forClass(GreetingResponse.class);
+
+    private final Map<MimeType, byte[]> encoded = new ConcurrentHashMap<>(2);
+
+    @Getter
+    private final GreetingResponse response;
+
+    private final RSocketStrategies strategies;
+
+    private volatile byte[] text;
+
+    DataBuffer encoded(MimeType mimeType, DataBufferFactory bufferFactory) {
+        return bufferFactory.wrap(this.encoded.computeIfAbsent(mimeType, this::encode));
+    }
+
+    DataBuffer text(DataBufferFactory bufferFactory) {
+        var bytes = this.text;
+        if (bytes == null) {
+            bytes = this.response.getMessage().getBytes(StandardCharsets.UTF_8);
+            this.text = bytes;
+        }
+        return bufferFactory.wrap(bytes);
+    }
+
+    private byte[] encode(MimeType mimeType) {
+        Encoder<GreetingResponse> encoder = this.strategies.encoder(TYPE, mimeType);
+        var buffer = encoder.encodeValue(this.response, ENCODING_BUFFERS, TYPE, mimeType, null);
+        try {
+            var bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            return bytes;
+        }
+        finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+}
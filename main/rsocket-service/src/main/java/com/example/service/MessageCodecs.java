@@ -0,0 +1,189 @@
+package com.example.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+/**
+ * Registers hand-written streaming serializers for the service's message types with
+ * the {@code ObjectMapper} that Spring Boot builds, which backs both the WebFlux
+ * codecs and the JSON and CBOR codecs in {@code RSocketStrategies}. Jackson then writes
+ * and reads these types token by token, without bean introspection, reflective
+ * accessors or intermediate maps.
+ */
+@Configuration(proxyBeanMethods = false)
+class MessageCodecs {
+
+    private static final SerializedString ID = new SerializedString("id");
+
+    private static final SerializedString NAME = new SerializedString("name");
+
+    private static final SerializedString MESSAGE = new SerializedString("message");
+
+    @Bean
+    Module messageCodecsModule() {
+        return new SimpleModule("message-codecs")
+                .addSerializer(GreetingRequest.class, new GreetingRequestSerializer())
+                .addDeserializer(GreetingRequest.class, new GreetingRequestDeserializer())
+                .addSerializer(GreetingResponse.class, new GreetingResponseSerializer())
+                .addDeserializer(GreetingResponse.class, new GreetingResponseDeserializer())
+                .addSerializer(Reservation.class, new ReservationSerializer())
+                .addDeserializer(Reservation.class, new ReservationDeserializer());
+    }
+
+    static class GreetingRequestSerializer extends StdSerializer<GreetingRequest> {
+
+        GreetingRequestSerializer() {
+            super(GreetingRequest.class);
+        }
+
+        @Override
+        public void serialize(GreetingRequest request, JsonGenerator json, SerializerProvider provider) throws IOException {
+            json.writeStartObject();
+            json.writeFieldName(NAME);
+            json.writeString(request.getName());
+            json.writeEndObject();
+        }
+    }
+
+    static class GreetingRequestDeserializer extends StdDeserializer<GreetingRequest> {
+
+        GreetingRequestDeserializer() {
+            super(GreetingRequest.class);
+        }
+
+        @Override
+        public GreetingRequest deserialize(JsonParser json, DeserializationContext context) throws IOException {
+            var name = new String[1];
+            readFields(json, context, GreetingRequest.class, field -> {
+                if ("name".equals(field)) {
+                    name[0] = json.getValueAsString();
+                    return true;
+                }
+                return false;
+            });
+            return new GreetingRequest(name[0]);
+        }
+    }
+
+    static class GreetingResponseSerializer extends StdSerializer<GreetingResponse> {
+
+        GreetingResponseSerializer() {
+            super(GreetingResponse.class);
+        }
+
+        @Override
+        public void serialize(GreetingResponse response, JsonGenerator json, SerializerProvider provider) throws IOException {
+            json.writeStartObject();
+            json.writeFieldName(MESSAGE);
+            json.writeString(response.getMessage());
+            json.writeEndObject();
+        }
+    }
+
+    static class GreetingResponseDeserializer extends StdDeserializer<GreetingResponse> {
+
+        GreetingResponseDeserializer() {
+            super(GreetingResponse.class);
+        }
+
+        @Override
+        public GreetingResponse deserialize(JsonParser json, DeserializationContext context) throws IOException {
+            var message = new String[1];
+            readFields(json, context, GreetingResponse.class, field -> {
+                if ("message".equals(field)) {
+                    message[0] = json.getValueAsString();
+                    return true;
+                }
+                return false;
+            });
+            return new GreetingResponse(message[0]);
+        }
+    }
+
+    static class ReservationSerializer extends StdSerializer<Reservation> {
+
+        ReservationSerializer() {
+            super(Reservation.class);
+        }
+
+        @Override
+        public void serialize(Reservation reservation, JsonGenerator json, SerializerProvider provider) throws IOException {
+            json.writeStartObject();
+            json.writeFieldName(ID);
+            if (reservation.getId() != null) {
+                json.writeNumber(reservation.getId());
+            }
+            else {
+                json.writeNull();
+            }
+            json.writeFieldName(NAME);
+            json.writeString(reservation.getName());
+            json.writeEndObject();
+        }
+    }
+
+    static class ReservationDeserializer extends StdDeserializer<Reservation> {
+
+        ReservationDeserializer() {
+            super(Reservation.class);
+        }
+
+        @Override
+        public Reservation deserialize(JsonParser json, DeserializationContext context) throws IOException {
+            var id = new Integer[1];
+            var name = new String[1];
+            readFields(json, context, Reservation.class, field -> {
+                switch (field) {
+                    case "id":
+                        id[0] = json.currentToken() == JsonToken.VALUE_NULL ? null : json.getValueAsInt();
+                        return true;
+                    case "name":
+                        name[0] = json.getValueAsString();
+                        return true;
+                    default:
+                        return false;
+                }
+            });
+            return new Reservation(id[0], name[0]);
+        }
+    }
+
+    interface FieldReader {
+
+        /**
+         * Reads the value the parser is positioned on.
+         *
+         * @return false if the field is unknown and its value should be skipped
+         */
+        boolean read(String field) throws IOException;
+    }
+
+    private static void readFields(JsonParser json, DeserializationContext context, Class<?> type, FieldReader reader) throws IOException {
+        var token = json.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = json.nextToken();
+        }
+        else if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {
+            context.handleUnexpectedToken(type, json);
+        }
+        for (; token == JsonToken.FIELD_NAME; token = json.nextToken()) {
+            var field = json.getCurrentName();
+            json.nextToken();
+            if (!reader.read(field)) {
+                json.skipChildren();
+            }
+        }
+    }
+}
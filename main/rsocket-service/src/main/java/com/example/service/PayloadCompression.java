@@ -0,0 +1,141 @@
+package com.example.service;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.rsocket.ConnectionSetupPayload;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.metadata.CompositeMetadata;
+import io.rsocket.metadata.CompositeMetadataFlyweight;
+import io.rsocket.metadata.WellKnownMimeType;
+import io.rsocket.plugins.SocketAcceptorInterceptor;
+import io.rsocket.util.ByteBufPayload;
+import io.rsocket.util.RSocketProxy;
+import lombok.Data;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.rsocket.server.RSocketServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+@Data
+@ConfigurationProperties("service.rsocket.compression")
+class PayloadCompressionProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Response payloads with less data than this many bytes are sent uncompressed.
+     */
+    private int threshold = 1024;
+}
+
+@Configuration(proxyBeanMethods = false)
+class PayloadCompressionConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "service.rsocket.compression.enabled", matchIfMissing = true)
+    RSocketServerCustomizer payloadCompression(PayloadCompressionProperties properties) {
+        return server -> server.interceptors(registry -> registry.forSocketAcceptor(PayloadCompression.negotiate(properties.getThreshold())));
+    }
+}
+
+/**
+ * LZ4-compresses the data of response payloads on connections whose SETUP metadata
+ * carries an {@link #ACCEPT_MIME_TYPE} entry of {@code lz4}. A compressed payload has
+ * a {@link #MIME_TYPE} entry appended to its composite metadata, and its data is the
+ * uncompressed length as a four byte int followed by the LZ4 block.
+ */
+class PayloadCompression {
+
+    static final String ACCEPT_MIME_TYPE = "message/x.rsocket.accept-compression.v0";
+
+    static final String MIME_TYPE = "message/x.rsocket.compression.v0";
+
+    static final String LZ4 = "lz4";
+
+    private static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+
+    static SocketAcceptorInterceptor negotiate(int threshold) {
+        return acceptor -> (setup, sendingSocket) -> {
+            var compress = LZ4.equals(setupEntry(setup, ACCEPT_MIME_TYPE));
+            return acceptor
+                    .accept(setup, sendingSocket)
+                    .map(responder -> compress ? new CompressingRSocket(responder, threshold) : responder);
+        };
+    }
+
+    static Payload compress(Payload payload, int threshold) {
+        var data = payload.sliceData();
+        var length = data.readableBytes();
+        if (length < threshold) {
+            return payload;
+        }
+        var maxLength = COMPRESSOR.maxCompressedLength(length);
+        var compressed = ByteBufAllocator.DEFAULT.buffer(Integer.BYTES + maxLength);
+        compressed.writeInt(length);
+        var written = COMPRESSOR.compress(data.nioBuffer(), 0, length, compressed.nioBuffer(Integer.BYTES, maxLength), 0, maxLength);
+        if (Integer.BYTES + written >= length) {
+            compressed.release();
+            return payload;
+        }
+        compressed.writerIndex(Integer.BYTES + written);
+        var metadata = ByteBufAllocator.DEFAULT.compositeBuffer();
+        if (payload.hasMetadata() && payload.sliceMetadata().isReadable()) {
+            metadata.addComponent(true, payload.sliceMetadata().retain());
+        }
+        CompositeMetadataFlyweight.encodeAndAddMetadata(metadata, ByteBufAllocator.DEFAULT, MIME_TYPE,
+                ByteBufUtil.writeAscii(ByteBufAllocator.DEFAULT, LZ4));
+        payload.release();
+        return ByteBufPayload.create(compressed, metadata);
+    }
+
+    private static String setupEntry(ConnectionSetupPayload setup, String mimeType) {
+        if (!setup.hasMetadata() || !WellKnownMimeType.MESSAGE_RSOCKET_COMPOSITE_METADATA.getString().equals(setup.metadataMimeType())) {
+            return null;
+        }
+        return entry(setup.sliceMetadata(), mimeType);
+    }
+
+    private static String entry(ByteBuf compositeMetadata, String mimeType) {
+        for (var entry : new CompositeMetadata(compositeMetadata, false)) {
+            if (mimeType.equals(entry.getMimeType())) {
+                return entry.getContent().toString(StandardCharsets.US_ASCII);
+            }
+        }
+        return null;
+    }
+
+    static class CompressingRSocket extends RSocketProxy {
+
+        private final int threshold;
+
+        CompressingRSocket(RSocket source, int threshold) {
+            super(source);
+            this.threshold = threshold;
+        }
+
+        @Override
+        public Mono<Payload> requestResponse(Payload payload) {
+            return super.requestResponse(payload).map(response -> compress(response, this.threshold));
+        }
+
+        @Override
+        public Flux<Payload> requestStream(Payload payload) {
+            return super.requestStream(payload).map(response -> compress(response, this.threshold));
+        }
+
+        @Override
+        public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
+            return super.requestChannel(payloads).map(response -> compress(response, this.threshold));
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.service;
+
+import io.rsocket.exceptions.RejectedException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.messaging.rsocket.MetadataExtractor;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.security.config.annotation.rsocket.PayloadInterceptorOrder;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.rsocket.api.PayloadExchange;
+import org.springframework.security.rsocket.api.PayloadExchangeType;
+import org.springframework.security.rsocket.api.PayloadInterceptor;
+import org.springframework.security.rsocket.api.PayloadInterceptorChain;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Data
+@ConfigurationProperties("service.rate-limit")
+class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Applies to principals that have none of the roles in {@link #roles}.
+     */
+    private Limit defaults = new Limit(10, 20);
+
+    /**
+     * Limits keyed by role name without the ROLE_ prefix. A principal with several
+     * configured roles gets the most generous of their limits.
+     */
+    private Map<String, Limit> roles = new HashMap<>();
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    static class Limit {
+        private double permitsPerSecond;
+        private int burst;
+    }
+}
+
+/**
+ * One token bucket per principal and route. Each bucket is a single {@link AtomicLong}
+ * holding the time at which it will be full again (the generic cell rate algorithm), so
+ * taking a permit is one compare-and-set and never blocks.
+ */
+@Component
+@RequiredArgsConstructor
+class TokenBuckets implements InitializingBean, DisposableBean {
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    private final RateLimitProperties properties;
+
+    private Disposable eviction;
+
+    /**
+     * @return zero if the request may proceed, otherwise how many nanoseconds until it would
+     */
+    long tryAcquire(Authentication authentication, String route) {
+        if (!this.properties.isEnabled()) {
+            return 0;
+        }
+        var key = authentication.getName() + '|' + route;
+        var bucket = this.buckets.get(key);
+        if (bucket == null) {
+            bucket = this.buckets.computeIfAbsent(key, k -> new Bucket(limitFor(authentication), System.nanoTime()));
+        }
+        return bucket.tryAcquire(System.nanoTime());
+    }
+
+    private RateLimitProperties.Limit limitFor(Authentication authentication) {
+        return authentication
+                .getAuthorities()
+                .stream()
+                .map(GrantedAuthority::getAuthority)
+                .map(authority -> authority.startsWith("ROLE_") ? authority.substring(5) : authority)
+                .map(this.properties.getRoles()::get)
+                .filter(Objects::nonNull)
+                .max(Comparator.comparingDouble(RateLimitProperties.Limit::getPermitsPerSecond))
+                .orElse(this.properties.getDefaults());
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        this.eviction = Schedulers.parallel().schedulePeriodically(() -> {
+            var now = System.nanoTime();
+            this.buckets.values().removeIf(bucket -> bucket.isFull(now));
+        }, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void destroy() {
+        this.eviction.dispose();
+    }
+
+    static class Bucket {
+
+        private final long interval;
+
+        private final long tolerance;
+
+        private final AtomicLong full;
+
+        Bucket(RateLimitProperties.Limit limit, long now) {
+            this.interval = (long) (TimeUnit.SECONDS.toNanos(1) / limit.getPermitsPerSecond());
+            this.tolerance = this.interval * Math.max(limit.getBurst() - 1, 0);
+            this.full = new AtomicLong(now);
+        }
+
+        long tryAcquire(long now) {
+            while (true) {
+                var current = this.full.get();
+                var start = current - now > 0 ? current : now;
+                var wait = start - now - this.tolerance;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (this.full.compareAndSet(current, start + this.interval)) {
+                    return 0;
+                }
+            }
+        }
+
+        boolean isFull(long now) {
+            return this.full.get() - now <= 0;
+        }
+    }
+}
+
+/**
+ * Charges a permit for every request a principal opens. The follow-up payloads of a
+ * request channel go through the interceptors too, but carry no route and are free, so
+ * a channel costs one permit however many payloads it carries.
+ */
+@RequiredArgsConstructor
+class RateLimitPayloadInterceptor implements PayloadInterceptor, Ordered {
+
+    private static final Set<PayloadExchangeType> REQUESTS = EnumSet.of(PayloadExchangeType.FIRE_AND_FORGET,
+            PayloadExchangeType.REQUEST_RESPONSE, PayloadExchangeType.REQUEST_STREAM, PayloadExchangeType.REQUEST_CHANNEL);
+
+    private final TokenBuckets buckets;
+
+    private final RSocketStrategies strategies;
+
+    @Override
+    public Mono<Void> intercept(PayloadExchange exchange, PayloadInterceptorChain chain) {
+        if (!REQUESTS.contains(exchange.getType())) {
+            return chain.next(exchange);
+        }
+        return ReactiveSecurityContextHolder
+                .getContext()
+                .map(SecurityContext::getAuthentication)
+                .map(authentication -> this.buckets.tryAcquire(authentication, route(exchange)))
+                .defaultIfEmpty(0L)
+                .flatMap(wait -> wait == 0
+                        ? chain.next(exchange)
+                        : Mono.error(new RejectedException("rate limit exceeded, retry in " + TimeUnit.NANOSECONDS.toMillis(wait) + "ms")));
+    }
+
+    private String route(PayloadExchange exchange) {
+        var metadata = this.strategies.metadataExtractor().extract(exchange.getPayload(), exchange.getMetadataMimeType());
+        return String.valueOf(metadata.get(MetadataExtractor.ROUTE_KEY));
+    }
+
+    @Override
+    public int getOrder() {
+        return PayloadInterceptorOrder.AUTHORIZATION.getOrder() + 1;
+    }
+}
+
+@RequiredArgsConstructor
+class RateLimitWebFilter implements WebFilter {
+
+    private final TokenBuckets buckets;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        var request = exchange.getRequest();
+        return exchange
+                .getPrincipal()
+                .filter(Authentication.class::isInstance)
+                .map(principal -> this.buckets.tryAcquire((Authentication) principal, request.getMethodValue() + " " + request.getPath().value()))
+                .defaultIfEmpty(0L)
+                .flatMap(wait -> {
+                    if (wait == 0) {
+                        return chain.filter(exchange);
+                    }
+                    var response = exchange.getResponse();
+                    response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+                    response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait))));
+                    return response.setComplete();
+                });
+    }
+}
@@ -0,0 +1,310 @@
+package com.example.service;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import lombok.Data;
+import lombok.extern.log4j.Log4j2;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.r2dbc.connectionfactory.lookup.AbstractRoutingConnectionFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.r2dbc.spi.ConnectionFactoryOptions.DRIVER;
+import static io.r2dbc.spi.ConnectionFactoryOptions.PASSWORD;
+import static io.r2dbc.spi.ConnectionFactoryOptions.PROTOCOL;
+import static io.r2dbc.spi.ConnectionFactoryOptions.USER;
+
+@Data
+@ConfigurationProperties("service.r2dbc")
+class ReadReplicaProperties {
+
+    /**
+     * R2DBC URLs of read replicas. Credentials default to spring.r2dbc.username and
+     * password, and each replica gets its own connection pool. Without replicas every
+     * query goes to spring.r2dbc.url.
+     */
+    private List<String> replicas = new ArrayList<>();
+
+    /**
+     * For this long after a principal's last write, its reads go to the primary as well,
+     * so it sees its own writes despite replication lag. Zero turns this off.
+     */
+    private Duration readYourWrites = Duration.ofSeconds(5);
+
+    private Duration healthCheckInterval = Duration.ofSeconds(5);
+
+    private Duration healthCheckTimeout = Duration.ofSeconds(2);
+}
+
+@Configuration(proxyBeanMethods = false)
+class ReadReplicaConfiguration {
+
+    @Bean
+    ReadReplicas readReplicas(ReadReplicaProperties properties, R2dbcProperties r2dbc, StatementCacheProperties statements) {
+        return ReadReplicas.create(properties, r2dbc, statements);
+    }
+
+    @Bean
+    static BeanPostProcessor readReplicaRouting(ObjectProvider<ReadReplicas> readReplicas) {
+        return new BeanPostProcessor() {
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof ReservationRepository) {
+                    return ReadReplicas.routedQueries((ReservationRepository) bean);
+                }
+                if (bean instanceof ConnectionFactory && !(bean instanceof ReadReplicaRoutingConnectionFactory)) {
+                    var replicas = readReplicas.getObject();
+                    return replicas.isEmpty() ? bean : new ReadReplicaRoutingConnectionFactory((ConnectionFactory) bean, replicas);
+                }
+                return bean;
+            }
+        };
+    }
+}
+
+/**
+ * The read replicas and the choice between them and the primary. Queries that run with
+ * {@link #READ_ONLY} in their subscriber context go round-robin to the replicas that
+ * passed their last health check, unless the current principal wrote recently; all
+ * other queries go to the primary. When no replica is healthy, reads go to the
+ * primary too. Only queries that run with {@link #WRITE} in their subscriber context
+ * count as the principal's writes; a query that is merely not marked read-only, such
+ * as a snapshot read through the {@code DatabaseClient}, goes to the primary without
+ * pinning the principal's later reads there.
+ */
+@Log4j2
+class ReadReplicas implements SmartLifecycle, DisposableBean {
+
+    static final String READ_ONLY = ReadReplicas.class.getName() + ".READ_ONLY";
+
+    static final String WRITE = ReadReplicas.class.getName() + ".WRITE";
+
+    private final Map<String, ConnectionFactory> replicas;
+
+    private final Map<String, Boolean> healthy = new ConcurrentHashMap<>();
+
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    private final List<String> keys;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final ReadReplicaProperties properties;
+
+    private volatile Disposable checking;
+
+    ReadReplicas(Map<String, ConnectionFactory> replicas, ReadReplicaProperties properties) {
+        this.replicas = replicas;
+        this.keys = new ArrayList<>(replicas.keySet());
+        this.properties = properties;
+    }
+
+    static ReadReplicas create(ReadReplicaProperties properties, R2dbcProperties r2dbc, StatementCacheProperties statements) {
+        var replicas = new LinkedHashMap<String, ConnectionFactory>();
+        for (var url : properties.getReplicas()) {
+            var options = ConnectionFactoryOptions.parse(url);
+            var pooled = options.mutate();
+            if (!"pool".equals(options.getValue(DRIVER))) {
+                var protocol = options.getValue(PROTOCOL);
+                pooled.option(DRIVER, "pool").option(PROTOCOL, options.getValue(DRIVER) + (protocol != null ? ":" + protocol : ""));
+            }
+            if (!options.hasOption(USER) && r2dbc.getUsername() != null) {
+                pooled.option(USER, r2dbc.getUsername());
+            }
+            if (!options.hasOption(PASSWORD) && r2dbc.getPassword() != null) {
+                pooled.option(PASSWORD, r2dbc.getPassword());
+            }
+            replicas.put(url, ConnectionFactories.get(StatementCaching.apply(pooled, statements).build()));
+        }
+        return new ReadReplicas(replicas, properties);
+    }
+
+    /**
+     * Runs every {@code find}, {@code count} and {@code exists} method of the repository
+     * as a read-only query, and every {@code save} and {@code delete} method as a write.
+     */
+    static ReservationRepository routedQueries(ReservationRepository repository) {
+        var proxy = new ProxyFactory();
+        proxy.setTarget(repository);
+        proxy.addInterface(ReservationRepository.class);
+        proxy.addAdvice((MethodInterceptor) invocation -> {
+            var result = invocation.proceed();
+            var name = invocation.getMethod().getName();
+            String key;
+            if (name.startsWith("find") || name.startsWith("count") || name.startsWith("exists")) {
+                key = READ_ONLY;
+            }
+            else if (name.startsWith("save") || name.startsWith("delete")) {
+                key = WRITE;
+            }
+            else {
+                return result;
+            }
+            if (result instanceof Mono) {
+                return ((Mono<?>) result).subscriberContext(Context.of(key, true));
+            }
+            if (result instanceof Flux) {
+                return ((Flux<?>) result).subscriberContext(Context.of(key, true));
+            }
+            return result;
+        });
+        return (ReservationRepository) proxy.getProxy();
+    }
+
+    boolean isEmpty() {
+        return this.replicas.isEmpty();
+    }
+
+    Map<String, ConnectionFactory> getReplicas() {
+        return this.replicas;
+    }
+
+    Mono<Object> lookupKey() {
+        return Mono.subscriberContext().flatMap(context -> ReactiveSecurityContextHolder
+                .getContext()
+                .map(security -> Optional.ofNullable(security.getAuthentication()).map(Authentication::getName))
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(principal -> {
+                    if (context.getOrDefault(WRITE, false)) {
+                        wrote(principal.orElse(null));
+                    }
+                    return Mono.<Object>justOrEmpty(select(context.getOrDefault(READ_ONLY, false), principal.orElse(null)));
+                }));
+    }
+
+    /**
+     * Sends the principal's reads to the primary for the read-your-writes window.
+     */
+    void wrote(String principal) {
+        var window = this.properties.getReadYourWrites().toNanos();
+        if (principal != null && window > 0) {
+            this.lastWrites.put(principal, System.nanoTime() + window);
+        }
+    }
+
+    /**
+     * @return the replica to run the query on, or null for the primary
+     */
+    String select(boolean readOnly, String principal) {
+        if (!readOnly) {
+            return null;
+        }
+        var now = System.nanoTime();
+        if (principal != null) {
+            var until = this.lastWrites.get(principal);
+            if (until != null) {
+                if (until - now > 0) {
+                    return null;
+                }
+                this.lastWrites.remove(principal, until);
+            }
+        }
+        var start = Math.floorMod(this.next.getAndIncrement(), this.keys.size());
+        for (var i = 0; i < this.keys.size(); i++) {
+            var key = this.keys.get((start + i) % this.keys.size());
+            if (this.healthy.getOrDefault(key, false)) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    void health(String replica, boolean healthy) {
+        var previous = this.healthy.put(replica, healthy);
+        if (previous == null || previous != healthy) {
+            log.info("read replica " + replica + " is " + (healthy ? "up" : "down"));
+        }
+    }
+
+    @Override
+    public void start() {
+        this.checking = Flux
+                .interval(Duration.ZERO, this.properties.getHealthCheckInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> Flux
+                        .fromIterable(this.replicas.entrySet())
+                        .flatMap(replica -> check(replica.getValue())
+                                .doOnNext(healthy -> health(replica.getKey(), healthy)))
+                        .then(Mono.fromRunnable(this::forgetOldWrites)))
+                .subscribe();
+    }
+
+    private Mono<Boolean> check(ConnectionFactory replica) {
+        return Mono
+                .usingWhen(replica.create(),
+                        connection -> Flux.from(connection.createStatement("select 1").execute()).flatMap(result -> result.map((row, metadata) -> 1)).then(),
+                        Connection::close)
+                .thenReturn(true)
+                .timeout(this.properties.getHealthCheckTimeout())
+                .onErrorReturn(false);
+    }
+
+    private void forgetOldWrites() {
+        var now = System.nanoTime();
+        this.lastWrites.values().removeIf(until -> until - now <= 0);
+    }
+
+    @Override
+    public void stop() {
+        if (this.checking != null) {
+            this.checking.dispose();
+            this.checking = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.checking != null;
+    }
+
+    @Override
+    public void destroy() {
+        for (var replica : this.replicas.values()) {
+            if (replica instanceof Disposable) {
+                ((Disposable) replica).dispose();
+            }
+        }
+    }
+}
+
+class ReadReplicaRoutingConnectionFactory extends AbstractRoutingConnectionFactory {
+
+    private final ReadReplicas replicas;
+
+    ReadReplicaRoutingConnectionFactory(ConnectionFactory primary, ReadReplicas replicas) {
+        this.replicas = replicas;
+        setDefaultTargetConnectionFactory(primary);
+        setTargetConnectionFactories(new LinkedHashMap<>(replicas.getReplicas()));
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Mono<Object> determineCurrentLookupKey() {
+        return this.replicas.lookupKey();
+    }
+}
@@ -0,0 +1,317 @@
+package com.example.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trie over reservation names. A search first collects exact and prefix
+ * matches and only widens to one and then two typos (depending on the query's length)
+ * if that didn't fill the requested number of results, so the common case only ever
+ * walks a single path down the trie.
+ */
+@Component
+class ReservationIndex {
+
+    private static final int[] NO_IDS = new int[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Integer, String> names = new HashMap<>();
+
+    private final Node root = new Node();
+
+    void put(Reservation reservation) {
+        var id = reservation.getId();
+        if (id == null || reservation.getName() == null) {
+            return;
+        }
+        this.lock.writeLock().lock();
+        try {
+            var previous = this.names.put(id, reservation.getName());
+            if (previous != null) {
+                this.root.remove(normalize(previous), 0, id);
+            }
+            this.root.add(normalize(reservation.getName()), 0, id);
+        }
+        finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    void remove(Integer id) {
+        this.lock.writeLock().lock();
+        try {
+            var previous = this.names.remove(id);
+            if (previous != null) {
+                this.root.remove(normalize(previous), 0, id);
+            }
+        }
+        finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    void clear() {
+        this.lock.writeLock().lock();
+        try {
+            this.names.clear();
+            this.root.clear();
+        }
+        finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        this.lock.readLock().lock();
+        try {
+            return this.names.size();
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    List<Reservation> search(String query, int limit) {
+        var term = normalize(query);
+        if (term.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        var maxEdits = term.length() < 3 ? 0 : term.length() < 6 ? 1 : 2;
+        this.lock.readLock().lock();
+        try {
+            var matches = new LinkedHashMap<Integer, Match>();
+            var exact = this.root.find(term);
+            if (exact != null) {
+                collect(List.of(new Hit(exact, term.length(), 0)), limit, matches);
+            }
+            var initialRow = new int[term.length() + 1];
+            Arrays.setAll(initialRow, i -> i);
+            for (var edits = 1; edits <= maxEdits && matches.size() < limit; edits++) {
+                var hits = new ArrayList<Hit>();
+                for (var i = 0; i < this.root.keys.length; i++) {
+                    this.root.children[i].fuzzy(this.root.keys[i], 1, term, initialRow, edits, hits);
+                }
+                collect(hits, limit, matches);
+            }
+            var ranked = new ArrayList<>(matches.values());
+            ranked.sort(Comparator
+                    .comparingInt(Match::getEdits)
+                    .thenComparing(Match::isPrefix)
+                    .thenComparingInt(match -> this.names.get(match.getId()).length())
+                    .thenComparing(match -> this.names.get(match.getId())));
+            var results = new ArrayList<Reservation>(Math.min(limit, ranked.size()));
+            for (var match : ranked.subList(0, Math.min(limit, ranked.size()))) {
+                results.add(new Reservation(match.getId(), this.names.get(match.getId())));
+            }
+            return results;
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the names at the hits, then the names below them as prefix matches, in the
+     * order they rank: fewer edits first, whole names before prefixes, shorter names
+     * before longer ones. It stops once there are {@code limit} matches, but only between
+     * groups that rank alike. So no name is left out that would have ranked above one
+     * that was kept.
+     */
+    private static void collect(List<Hit> hits, int limit, Map<Integer, Match> matches) {
+        var byEdits = new TreeMap<Integer, List<Hit>>();
+        for (var hit : hits) {
+            byEdits.computeIfAbsent(hit.edits, edits -> new ArrayList<>()).add(hit);
+        }
+        for (var group : byEdits.entrySet()) {
+            if (matches.size() >= limit) {
+                return;
+            }
+            var edits = group.getKey();
+            var byLength = new TreeMap<Integer, List<Node>>();
+            for (var hit : group.getValue()) {
+                hit.node.addTo(matches, edits, false);
+                hit.node.addChildren(hit.length + 1, byLength);
+            }
+            while (matches.size() < limit && !byLength.isEmpty()) {
+                var shortest = byLength.pollFirstEntry();
+                for (var node : shortest.getValue()) {
+                    node.addTo(matches, edits, true);
+                    node.addChildren(shortest.getKey() + 1, byLength);
+                }
+            }
+        }
+    }
+
+    private static String normalize(String name) {
+        return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @Value
+    private static class Match {
+
+        int id;
+        int edits;
+        boolean prefix;
+
+        static Match closer(Match a, Match b) {
+            if (a.edits != b.edits) {
+                return a.edits < b.edits ? a : b;
+            }
+            return a.prefix && !b.prefix ? b : a;
+        }
+    }
+
+    /**
+     * A node whose path is within {@code edits} of the query.
+     */
+    @RequiredArgsConstructor
+    private static class Hit {
+
+        private final Node node;
+        private final int length;
+        private final int edits;
+    }
+
+    private static class Node {
+
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private int[] ids = NO_IDS;
+
+        void add(String term, int depth, int id) {
+            if (depth == term.length()) {
+                this.ids = Arrays.copyOf(this.ids, this.ids.length + 1);
+                this.ids[this.ids.length - 1] = id;
+                return;
+            }
+            var key = term.charAt(depth);
+            var index = Arrays.binarySearch(this.keys, key);
+            if (index < 0) {
+                index = -index - 1;
+                this.keys = insert(this.keys, index, key);
+                this.children = insert(this.children, index, new Node());
+            }
+            this.children[index].add(term, depth + 1, id);
+        }
+
+        boolean remove(String term, int depth, int id) {
+            if (depth == term.length()) {
+                for (var i = 0; i < this.ids.length; i++) {
+                    if (this.ids[i] == id) {
+                        var remaining = new int[this.ids.length - 1];
+                        System.arraycopy(this.ids, 0, remaining, 0, i);
+                        System.arraycopy(this.ids, i + 1, remaining, i, remaining.length - i);
+                        this.ids = remaining.length == 0 ? NO_IDS : remaining;
+                        break;
+                    }
+                }
+            }
+            else {
+                var index = Arrays.binarySearch(this.keys, term.charAt(depth));
+                if (index >= 0 && this.children[index].remove(term, depth + 1, id)) {
+                    this.keys = delete(this.keys, index);
+                    this.children = delete(this.children, index);
+                }
+            }
+            return this.ids.length == 0 && this.keys.length == 0;
+        }
+
+        void clear() {
+            this.keys = new char[0];
+            this.children = new Node[0];
+            this.ids = NO_IDS;
+        }
+
+        Node find(String term) {
+            var node = this;
+            for (var i = 0; i < term.length() && node != null; i++) {
+                var index = Arrays.binarySearch(node.keys, term.charAt(i));
+                node = index < 0 ? null : node.children[index];
+            }
+            return node;
+        }
+
+        void addTo(Map<Integer, Match> matches, int edits, boolean prefix) {
+            for (var id : this.ids) {
+                matches.merge(id, new Match(id, edits, prefix), Match::closer);
+            }
+        }
+
+        void addChildren(int length, TreeMap<Integer, List<Node>> byLength) {
+            if (this.children.length > 0) {
+                Collections.addAll(byLength.computeIfAbsent(length, key -> new ArrayList<>()), this.children);
+            }
+        }
+
+        /**
+         * Walks the trie computing one row of the Levenshtein matrix between the query
+         * and the path to each node, pruning branches that can no longer come within
+         * {@code maxEdits}, and records every node whose path is within it.
+         */
+        void fuzzy(char key, int depth, String term, int[] previousRow, int maxEdits, List<Hit> hits) {
+            var row = new int[previousRow.length];
+            row[0] = previousRow[0] + 1;
+            var best = row[0];
+            for (var i = 1; i < row.length; i++) {
+                var substitution = previousRow[i - 1] + (term.charAt(i - 1) == key ? 0 : 1);
+                row[i] = Math.min(substitution, Math.min(row[i - 1] + 1, previousRow[i] + 1));
+                best = Math.min(best, row[i]);
+            }
+            var distance = row[row.length - 1];
+            if (distance <= maxEdits) {
+                hits.add(new Hit(this, depth, distance));
+            }
+            if (best > maxEdits) {
+                return;
+            }
+            for (var i = 0; i < this.keys.length; i++) {
+                this.children[i].fuzzy(this.keys[i], depth + 1, term, row, maxEdits, hits);
+            }
+        }
+
+        private static char[] insert(char[] array, int index, char value) {
+            var copy = new char[array.length + 1];
+            System.arraycopy(array, 0, copy, 0, index);
+            copy[index] = value;
+            System.arraycopy(array, index, copy, index + 1, array.length - index);
+            return copy;
+        }
+
+        private static Node[] insert(Node[] array, int index, Node value) {
+            var copy = new Node[array.length + 1];
+            System.arraycopy(array, 0, copy, 0, index);
+            copy[index] = value;
+            System.arraycopy(array, index, copy, index + 1, array.length - index);
+            return copy;
+        }
+
+        private static char[] delete(char[] array, int index) {
+            var copy = new char[array.length - 1];
+            System.arraycopy(array, 0, copy, 0, index);
+            System.arraycopy(array, index + 1, copy, index, copy.length - index);
+            return copy;
+        }
+
+        private static Node[] delete(Node[] array, int index) {
+            var copy = new Node[array.length - 1];
+            System.arraycopy(array, 0, copy, 0, index);
+            System.arraycopy(array, index + 1, copy, index, copy.length - index);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.data.r2dbc.mapping.OutboundRow;
+import org.springframework.data.r2dbc.mapping.event.AfterSaveCallback;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.data.r2dbc.query.Criteria.where;
+
+@Log4j2
+@Component
+@RequiredArgsConstructor
+class ReservationIndexer implements AfterSaveCallback<Reservation>, ApplicationListener<ApplicationReadyEvent> {
+
+    private final ReservationIndex index;
+
+    private final ReservationChangeLog changeLog;
+
+    private final ReservationRepository reservationRepository;
+
+    @Override
+    public Publisher<Reservation> onAfterSave(Reservation reservation, OutboundRow outboundRow, SqlIdentifier table) {
+        this.index.put(reservation);
+        this.changeLog.saved(reservation);
+        return Mono.just(reservation);
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        this.reservationRepository
+                .findAll()
+                .doOnNext(this.index::put)
+                .then(Mono.fromCallable(this.index::size))
+                .subscribe(
+                        size -> log.info("indexed " + size + " reservation names"),
+                        error -> log.warn("could not build the reservation index: " + error.getMessage()));
+    }
+}
+
+/**
+ * Removes deleted reservations from the {@link ReservationIndex} and records the deletes
+ * in the {@link ReservationChangeLog}. Spring Data R2DBC has
+ * no delete callbacks, so the repository's delete methods are overridden instead.
+ */
+interface IndexedReservationDeletes {
+
+    Mono<Void> deleteById(Integer id);
+
+    Mono<Void> deleteById(Publisher<Integer> id);
+
+    Mono<Void> delete(Reservation reservation);
+
+    Mono<Void> deleteAll(Iterable<? extends Reservation> reservations);
+
+    Mono<Void> deleteAll(Publisher<? extends Reservation> reservations);
+
+    Mono<Void> deleteAll();
+}
+
+@RequiredArgsConstructor
+class IndexedReservationDeletesImpl implements IndexedReservationDeletes {
+
+    private final DatabaseClient databaseClient;
+
+    private final ReservationIndex index;
+
+    private final ReservationChangeLog changeLog;
+
+    @Override
+    public Mono<Void> deleteById(Integer id) {
+        return this.databaseClient
+                .delete()
+                .from(Reservation.class)
+                .matching(where("id").is(id))
+                .then()
+                .doOnSuccess(done -> {
+                    this.index.remove(id);
+                    this.changeLog.deleted(id);
+                });
+    }
+
+    @Override
+    public Mono<Void> deleteById(Publisher<Integer> id) {
+        return Mono.from(id).flatMap(this::deleteById);
+    }
+
+    @Override
+    public Mono<Void> delete(Reservation reservation) {
+        return deleteById(reservation.getId());
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Iterable<? extends Reservation> reservations) {
+        return deleteAll(Flux.fromIterable(reservations));
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Publisher<? extends Reservation> reservations) {
+        return Flux.from(reservations).concatMap(this::delete).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return this.databaseClient
+                .delete()
+                .from(Reservation.class)
+                .then()
+                .doOnSuccess(done -> {
+                    this.index.clear();
+                    this.changeLog.cleared();
+                });
+    }
+}
@@ -0,0 +1,345 @@
+package com.example.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.IllegalReferenceCountException;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPOutputStream;
+
+@Data
+@ConfigurationProperties("service.snapshot")
+class ReservationSnapshotProperties {
+
+    /**
+     * Serve {@code GET /reservations} from a pre-serialized snapshot instead of querying
+     * and serializing every row per request.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Changes are folded into the snapshot at most this often, so a burst of writes
+     * costs one rebuild.
+     */
+    private Duration rebuildInterval = Duration.ofMillis(50);
+}
+
+/**
+ * The reservation list as the JSON array {@code GET /reservations} would return, plus
+ * its gzip encoding, held in pooled direct buffers outside the heap and written to
+ * clients without copying. Each reservation is serialized once and kept; a change from
+ * the {@link ReservationChangeLog} re-serializes only the reservation it touches, and
+ * the buffers are reassembled from the kept pieces at most once per rebuild interval.
+ * Every response holds a reference to the snapshot it writes, so a superseded snapshot
+ * goes back to the pool as soon as the last of them is done. Should maintaining the
+ * snapshot fail, it is dropped and requests go back to querying.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+class ReservationSnapshot implements SmartLifecycle {
+
+    private final Map<Integer, byte[]> serialized = new TreeMap<>();
+
+    private final ReservationSnapshotProperties properties;
+
+    private final ReservationChangeLog changeLog;
+
+    private final DatabaseClient databaseClient;
+
+    private final ObjectMapper objectMapper;
+
+    private volatile Buffers current;
+
+    private volatile Scheduler scheduler;
+
+    private volatile Disposable maintaining;
+
+    /**
+     * Writes the snapshot, gzipped when the client accepts it, or 304 when the client
+     * already has this version. The body is taken from whichever snapshot is current
+     * when the response is written, and its headers are set to match, so nothing is held
+     * for a response that never gets written.
+     *
+     * @return empty when there is no snapshot to serve
+     */
+    Mono<ServerResponse> serve(ServerRequest request) {
+        var buffers = this.current;
+        if (buffers == null) {
+            return Mono.empty();
+        }
+        if (request.headers().header(HttpHeaders.IF_NONE_MATCH).contains(buffers.etag)) {
+            return ServerResponse.status(HttpStatus.NOT_MODIFIED).eTag(buffers.etag).build();
+        }
+        var gzip = acceptsGzip(request.headers().header(HttpHeaders.ACCEPT_ENCODING));
+        return ServerResponse
+                .ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .body((message, context) -> message.writeWith(Mono.fromSupplier(() -> {
+                    var body = retainBody(gzip, message.getHeaders());
+                    return wrap(message.bufferFactory(), body);
+                })));
+    }
+
+    /**
+     * Retains a duplicate of the current snapshot's body and describes it in
+     * {@code headers}, which the response commits only once the body is written.
+     */
+    private ByteBuf retainBody(boolean gzip, HttpHeaders headers) {
+        while (true) {
+            var buffers = this.current;
+            if (buffers == null) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "the reservation snapshot was dropped");
+            }
+            try {
+                buffers.retain();
+            }
+            catch (IllegalReferenceCountException e) {
+                continue;
+            }
+            try {
+                var body = (gzip ? buffers.gzip : buffers.json).retainedDuplicate();
+                headers.setETag(buffers.etag);
+                headers.setContentLength(body.readableBytes());
+                if (gzip) {
+                    headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+                }
+                return body;
+            }
+            finally {
+                buffers.release();
+            }
+        }
+    }
+
+    /**
+     * Whether the client takes gzip, by its {@code Accept-Encoding} q-values: an
+     * explicit {@code gzip} entry wins over {@code *}, and q=0 means not acceptable.
+     */
+    static boolean acceptsGzip(List<String> acceptEncoding) {
+        Double gzip = null;
+        Double any = null;
+        for (var value : acceptEncoding) {
+            for (var coding : value.split(",")) {
+                var parameters = coding.split(";");
+                var name = parameters[0].trim().toLowerCase(Locale.ROOT);
+                var q = 1.0;
+                for (var i = 1; i < parameters.length; i++) {
+                    var parameter = parameters[i].trim();
+                    if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                        try {
+                            q = Double.parseDouble(parameter.substring(2).trim());
+                        }
+                        catch (NumberFormatException e) {
+                            q = 0;
+                        }
+                    }
+                }
+                if (name.equals("gzip") || name.equals("x-gzip")) {
+                    gzip = q;
+                }
+                else if (name.equals("*")) {
+                    any = q;
+                }
+            }
+        }
+        return gzip != null ? gzip > 0 : any != null && any > 0;
+    }
+
+    private static DataBuffer wrap(DataBufferFactory bufferFactory, ByteBuf body) {
+        if (bufferFactory instanceof NettyDataBufferFactory) {
+            return ((NettyDataBufferFactory) bufferFactory).wrap(body);
+        }
+        try {
+            return bufferFactory.wrap(ByteBufUtil.getBytes(body));
+        }
+        finally {
+            body.release();
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!this.properties.isEnabled()) {
+            return;
+        }
+        var scheduler = Schedulers.newSingle("reservation-snapshot");
+        this.scheduler = scheduler;
+        this.maintaining = Mono
+                .fromCallable(this.changeLog::version)
+                .flatMapMany(version -> this.databaseClient
+                        .select()
+                        .from(Reservation.class)
+                        .fetch()
+                        .all()
+                        .map(reservation -> new ReservationDelta(version, ReservationDelta.UPSERT, reservation.getId(), reservation.getName()))
+                        .concatWith(Mono.just(new ReservationDelta(version, null, null, null)))
+                        .concatWith(this.changeLog.changes(version)))
+                .publishOn(scheduler)
+                .doOnNext(this::apply)
+                .skipUntil(delta -> delta.getType() == null)
+                .sample(this.properties.getRebuildInterval())
+                .publishOn(scheduler)
+                .subscribe(
+                        delta -> rebuild(delta.getVersion()),
+                        error -> {
+                            log.warn("stopped maintaining the reservation snapshot, serving from queries: " + error.getMessage());
+                            publish(null);
+                        });
+    }
+
+    private void apply(ReservationDelta delta) {
+        if (delta.getType() == null) {
+            return;
+        }
+        switch (delta.getType()) {
+            case ReservationDelta.UPSERT:
+                this.serialized.put(delta.getId(), serialize(new Reservation(delta.getId(), delta.getName())));
+                break;
+            case ReservationDelta.DELETE:
+                this.serialized.remove(delta.getId());
+                break;
+            case ReservationDelta.CLEAR:
+                this.serialized.clear();
+                break;
+            default:
+        }
+    }
+
+    private byte[] serialize(Reservation reservation) {
+        try {
+            return this.objectMapper.writeValueAsBytes(reservation);
+        }
+        catch (JsonProcessingException e) {
+            throw new IllegalStateException("could not serialize " + reservation, e);
+        }
+    }
+
+    private void rebuild(long version) {
+        var length = 2 + Math.max(0, this.serialized.size() - 1);
+        for (var bytes : this.serialized.values()) {
+            length += bytes.length;
+        }
+        var json = PooledByteBufAllocator.DEFAULT.directBuffer(length, length);
+        var gzipped = PooledByteBufAllocator.DEFAULT.directBuffer(length / 4 + 64);
+        try (var gzip = new GZIPOutputStream(new ByteBufOutputStream(gzipped), 64 * 1024)) {
+            write(json, gzip, '[');
+            var first = true;
+            for (var bytes : this.serialized.values()) {
+                if (!first) {
+                    write(json, gzip, ',');
+                }
+                json.writeBytes(bytes);
+                gzip.write(bytes);
+                first = false;
+            }
+            write(json, gzip, ']');
+        }
+        catch (IOException e) {
+            json.release();
+            gzipped.release();
+            throw new UncheckedIOException(e);
+        }
+        var etag = "\"" + this.changeLog.getEpoch() + "-" + version + "\"";
+        var first = this.current == null;
+        publish(new Buffers(json, gzipped, etag));
+        if (first) {
+            log.info("serving " + this.serialized.size() + " reservations from a " + length + " byte snapshot (" + gzipped.readableBytes() + " gzipped)");
+        }
+    }
+
+    private static void write(ByteBuf json, OutputStream gzip, char c) throws IOException {
+        json.writeByte(c);
+        gzip.write(c);
+    }
+
+    /**
+     * Makes {@code buffers} the snapshot new responses get, and lets go of the one they
+     * got before.
+     */
+    private synchronized void publish(Buffers buffers) {
+        var previous = this.current;
+        this.current = buffers;
+        if (previous != null) {
+            previous.release();
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (this.maintaining != null) {
+            this.maintaining.dispose();
+            this.maintaining = null;
+        }
+        if (this.scheduler != null) {
+            this.scheduler.dispose();
+            this.scheduler = null;
+        }
+        publish(null);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.maintaining != null;
+    }
+
+    /**
+     * One version of the snapshot. A response retains it, as it is written, only for as
+     * long as it takes to retain its own duplicate of a buffer, because a released pooled
+     * buffer may be handed out again and can't be relied on to refuse a late
+     * {@code retain()}.
+     */
+    @RequiredArgsConstructor
+    private static class Buffers extends AbstractReferenceCounted {
+
+        private final ByteBuf json;
+
+        private final ByteBuf gzip;
+
+        private final String etag;
+
+        @Override
+        protected void deallocate() {
+            this.json.release();
+            this.gzip.release();
+        }
+
+        @Override
+        public Buffers touch(Object hint) {
+            return this;
+        }
+    }
+}
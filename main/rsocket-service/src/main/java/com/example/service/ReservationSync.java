@@ -0,0 +1,183 @@
+package com.example.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Numbers every reservation change made through this service instance and keeps the
+ * most recent {@link #RETAINED} of them, so a replica that knows the version it has
+ * applied can catch up with just the changes after it. Versions start again from zero
+ * under a new {@link #getEpoch() epoch} whenever the service restarts.
+ */
+@Component
+class ReservationChangeLog {
+
+    static final int RETAINED = 10_000;
+
+    private final String epoch = UUID.randomUUID().toString();
+
+    private final NavigableMap<Long, ReservationDelta> history = new TreeMap<>();
+
+    private final DirectProcessor<ReservationDelta> processor = DirectProcessor.create();
+
+    private final FluxSink<ReservationDelta> sink = this.processor.sink();
+
+    private long version;
+
+    String getEpoch() {
+        return this.epoch;
+    }
+
+    synchronized long version() {
+        return this.version;
+    }
+
+    void saved(Reservation reservation) {
+        record(ReservationDelta.UPSERT, reservation.getId(), reservation.getName());
+    }
+
+    void deleted(Integer id) {
+        record(ReservationDelta.DELETE, id, null);
+    }
+
+    void cleared() {
+        record(ReservationDelta.CLEAR, null, null);
+    }
+
+    private synchronized void record(String type, Integer id, String name) {
+        var delta = new ReservationDelta(++this.version, type, id, name);
+        this.history.put(delta.getVersion(), delta);
+        if (this.history.size() > RETAINED) {
+            this.history.pollFirstEntry();
+        }
+        this.sink.next(delta);
+    }
+
+    /**
+     * @return whether every change after {@code version} of {@code epoch} is still retained
+     */
+    synchronized boolean covers(String epoch, long version) {
+        if (!this.epoch.equals(epoch) || version > this.version) {
+            return false;
+        }
+        return version == this.version || this.history.isEmpty() || this.history.firstKey() <= version + 1;
+    }
+
+    /**
+     * Every change after {@code version}, then every future change as it happens. Fails
+     * if the changes right after {@code version} have been forgotten in the meantime.
+     */
+    Flux<ReservationDelta> changes(long version) {
+        return Flux.create(sink -> {
+            synchronized (this) {
+                if (!covers(this.epoch, version)) {
+                    sink.error(new IllegalStateException("changes after version " + version + " are no longer retained"));
+                    return;
+                }
+                this.history.tailMap(version, false).values().forEach(sink::next);
+                sink.onDispose(this.processor.subscribe(sink::next, sink::error, sink::complete));
+            }
+        }, FluxSink.OverflowStrategy.BUFFER);
+    }
+}
+
+@Value
+class ReservationDelta {
+
+    static final String UPSERT = "upsert";
+    static final String DELETE = "delete";
+    static final String CLEAR = "clear";
+
+    long version;
+    String type;
+    Integer id;
+    String name;
+}
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+class ReservationSyncRequest {
+
+    /**
+     * The epoch and version the replica has applied, or null for a replica with nothing.
+     */
+    private String epoch;
+    private long version;
+}
+
+/**
+ * One message of a {@code reservations.sync} stream. A stream that can't continue from
+ * the requested version starts with {@code reset}, which tells the replica to start over
+ * from a new snapshot, followed by one {@code upsert} per reservation and then
+ * {@code current}, after which the replica is up to date. Every stream then continues
+ * with the {@code upsert}, {@code delete} and {@code clear} changes of each version.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+class ReservationSyncMessage {
+
+    static final String RESET = "reset";
+    static final String CURRENT = "current";
+
+    private String type;
+    private String epoch;
+    private long version;
+    private Integer id;
+    private String name;
+}
+
+@Controller
+@RequiredArgsConstructor
+class ReservationSyncController {
+
+    private final ReservationChangeLog changeLog;
+
+    private final DatabaseClient databaseClient;
+
+    /**
+     * The snapshot is read straight from the primary, not from a read replica that may
+     * lag behind the version it is tagged with.
+     */
+    @MessageMapping("reservations.sync")
+    Flux<ReservationSyncMessage> sync(ReservationSyncRequest request) {
+        return Flux.defer(() -> {
+            var epoch = changeLog.getEpoch();
+            if (changeLog.covers(request.getEpoch(), request.getVersion())) {
+                return changeLog.changes(request.getVersion()).map(delta -> message(epoch, delta));
+            }
+            var version = changeLog.version();
+            var snapshot = databaseClient
+                    .select()
+                    .from(Reservation.class)
+                    .fetch()
+                    .all()
+                    .map(reservation -> new ReservationSyncMessage(ReservationDelta.UPSERT, epoch, version, reservation.getId(), reservation.getName()));
+            return Flux.concat(
+                    Flux.just(new ReservationSyncMessage(ReservationSyncMessage.RESET, epoch, version, null, null)),
+                    snapshot,
+                    Flux.just(new ReservationSyncMessage(ReservationSyncMessage.CURRENT, epoch, version, null, null)),
+                    changeLog.changes(version).map(delta -> message(epoch, delta)));
+        });
+    }
+
+    private static ReservationSyncMessage message(String epoch, ReservationDelta delta) {
+        return new ReservationSyncMessage(delta.getType(), epoch, delta.getVersion(), delta.getId(), delta.getName());
+    }
+}
@@ -1,20 +1,33 @@
 package com.example.service;
 
+import com.example.tracing.Tracer;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.With;
+import org.springframework.boot.LazyInitializationExcludeFilter;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.rsocket.RSocketRequester;
 import org.springframework.messaging.rsocket.RSocketStrategies;
 import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.rsocket.EnableRSocketSecurity;
 import org.springframework.security.config.annotation.rsocket.RSocketSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -26,6 +39,7 @@ import org.springframework.security.rsocket.core.PayloadSocketAcceptorIntercepto
 import org.springframework.security.web.server.SecurityWebFilterChain;
 import org.springframework.stereotype.Controller;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import org.springframework.web.reactive.handler.SimpleUrlHandlerMapping;
@@ -35,17 +49,20 @@ import org.springframework.web.reactive.socket.server.support.WebSocketHandlerAd
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.nio.file.Path;
 import java.security.Principal;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
-import java.util.stream.Stream;
 
 import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+import static org.springframework.web.reactive.function.server.ServerResponse.badRequest;
 import static org.springframework.web.reactive.function.server.ServerResponse.ok;
 
 @EnableRSocketSecurity
-@SpringBootApplication
+@ConfigurationPropertiesScan
+@SpringBootApplication(proxyBeanMethods = false)
 public class ServiceApplication {
 
     public static void main(String[] args) {
@@ -53,18 +70,47 @@ public class ServiceApplication {
     }
 
     @Bean
-    RouterFunction<ServerResponse> routes(ReservationRepository rr) {
+    @ConditionalOnProperty("service.startup.timeline")
+    static StartupTimeline startupTimeline(Environment environment) {
+        var report = environment.getProperty("service.startup.timeline-report");
+        return new StartupTimeline(StringUtils.hasText(report) ? Path.of(report) : null);
+    }
+
+    @Bean
+    static LazyInitializationExcludeFilter firstFrameEagerBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(RSocketMessageHandler.class,
+                PayloadSocketAcceptorInterceptor.class, GreetingController.class);
+    }
+
+    @Bean
+    @ConditionalOnProperty("service.startup.exit-on-ready")
+    ApplicationListener<ApplicationReadyEvent> exitOnReady() {
+        return event -> System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+
+    @Bean
+    RouterFunction<ServerResponse> routes(ReservationRepository rr, ReservationIndex index, FlightRecorderEvents flightRecorder, Tracer tracer, ReservationSnapshot snapshot) {
         return route()
-                .GET("/reservations", request -> ok().body(rr.findAll(), Reservation.class))
+                .GET("/reservations", request -> snapshot
+                        .serve(request)
+                        .switchIfEmpty(Mono.defer(() -> ok().body(rr.findAll().transform(flightRecorder.query("Reservation.findAll")).transform(tracer.spans("routes.reservations")), Reservation.class))))
+                .GET("/reservations/search", request -> Mono
+                        .fromCallable(() -> request.queryParam("limit").map(Integer::valueOf).orElse(ReservationSearchRequest.DEFAULT_LIMIT))
+                        .flatMap(limit -> {
+                            var query = request.queryParam("q").orElse("");
+                            return ok().body(Flux.defer(() -> Flux.fromIterable(index.search(query, limit))), Reservation.class);
+                        })
+                        .onErrorResume(NumberFormatException.class, e -> badRequest().build()))
                 .build();
     }
 
     @Bean
-    SecurityWebFilterChain httpAuthorization(ServerHttpSecurity httpSecurity) {
+    SecurityWebFilterChain httpAuthorization(ServerHttpSecurity httpSecurity, TokenBuckets buckets) {
         return httpSecurity
                 .httpBasic(Customizer.withDefaults())
                 .csrf(ServerHttpSecurity.CsrfSpec::disable)
                 .authorizeExchange(ae -> ae.anyExchange().authenticated())
+                .addFilterAfter(new RateLimitWebFilter(buckets), SecurityWebFiltersOrder.AUTHORIZATION)
                 .build();
     }
 
@@ -77,10 +123,13 @@ public class ServiceApplication {
     }
 
     @Bean
-    PayloadSocketAcceptorInterceptor rsocketAuthorization(RSocketSecurity security) {
+    PayloadSocketAcceptorInterceptor rsocketAuthorization(RSocketSecurity security, TokenBuckets buckets, RSocketStrategies strategies) {
         return security
                 .simpleAuthentication(Customizer.withDefaults())
-                .authorizePayload(ae -> ae.anyExchange().authenticated())
+                .authorizePayload(ae -> ae
+                        .route("greetings.broadcast").hasRole("ADMIN")
+                        .anyExchange().authenticated())
+                .addPayloadInterceptor(new RateLimitPayloadInterceptor(buckets, strategies))
                 .build();
     }
 
@@ -92,6 +141,18 @@ public class ServiceApplication {
                         .username("jlong")
                         .password("pw")
                         .roles("USER")
+                        .build(),
+                User
+                        .withDefaultPasswordEncoder()
+                        .username("edge")
+                        .password("pw")
+                        .roles("EDGE")
+                        .build(),
+                User
+                        .withDefaultPasswordEncoder()
+                        .username("admin")
+                        .password("pw")
+                        .roles("ADMIN")
                         .build()
         );
     }
@@ -107,17 +168,17 @@ public class ServiceApplication {
     }
 
     @Bean
-    WebSocketHandler webSocketHandler(GreetingService greetingService) {
-        return session -> {
+    WebSocketHandler webSocketHandler(GreetingFrames greetingFrames, FlightRecorderEvents flightRecorder, ConnectionDrainer drainer) {
+        return session -> drainer.webSocketSession(session, flightRecorder.webSocketSession(session, event -> {
             var chat = session
                     .receive()
+                    .doOnNext(message -> event.received++)
                     .map(WebSocketMessage::getPayloadAsText)
-                    .map(GreetingRequest::new)
-                    .flatMap(greetingService::greet)
-                    .map(GreetingResponse::getMessage)
-                    .map(session::textMessage);
+                    .transform(greetingFrames::frames)
+                    .map(frame -> new WebSocketMessage(WebSocketMessage.Type.TEXT, frame.text(session.bufferFactory())))
+                    .doOnNext(message -> event.sent++);
             return session.send(chat);
-        };
+        }));
     }
 }
 
@@ -126,52 +187,138 @@ public class ServiceApplication {
 @RequiredArgsConstructor
 class GreetingController {
 
-    private final GreetingService greetingService;
+    private final GreetingFrames greetingFrames;
+
+    private final ClusterBroadcast clusterBroadcast;
+
+    private final RSocketStrategies strategies;
+
+    private final FlightRecorderEvents flightRecorder;
+
+    private final Tracer tracer;
 
     @MessageMapping("greetings")
-    Flux<GreetingResponse> greet(@AuthenticationPrincipal Mono<UserDetails> principal) {
+    Flux<DataBuffer> greet(@AuthenticationPrincipal Mono<UserDetails> principal, RSocketRequester requester) {
         return principal
                 .map( UserDetails::getUsername)
-                .map(GreetingRequest::new)
-                .flatMapMany(greetingService::greet);
+                .flatMapMany(greetingFrames::frames)
+                .map(frame -> frame.encoded(requester.dataMimeType(), strategies.dataBufferFactory()))
+                .transform(flightRecorder.stream("greetings"))
+                .transform(tracer.stream("GreetingController.greet"));
+    }
+
+    @MessageMapping("greetings.broadcast")
+    Mono<Void> broadcast(GreetingResponse greeting) {
+        return clusterBroadcast.publish(GreetingFrames.BROADCAST_TOPIC, greeting.getMessage());
     }
 
 }
 
+/**
+ * Greets every name once per tick of one shared clock, so each tick's timestamp is
+ * formatted once no matter how many streams are open, and each greeting costs one
+ * string concatenation.
+ */
 @Service
 class GreetingService {
 
+    private final Flux<String> ticks;
+
+    GreetingService(EventLoops eventLoops) {
+        this.ticks = Flux
+                .interval(Duration.ofSeconds(1), eventLoops.getTicks())
+                .onBackpressureDrop()
+                .map(tick -> Instant.now().toString())
+                .publish()
+                .refCount();
+    }
+
     Flux<GreetingResponse> greet(GreetingRequest request) {
-        return Flux
-                .fromStream(Stream.generate(() -> new GreetingResponse("Hello " + request.getName() + " @ " + Instant.now())))
-                .delayElements(Duration.ofSeconds(1));
+        var greeting = "Hello " + request.getName() + " @ ";
+        return ticks.map(timestamp -> new GreetingResponse(greeting.concat(timestamp)));
     }
 }
 
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
+@Value
 class GreetingRequest {
-    private String name;
+    String name;
 }
 
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
+@Value
 class GreetingResponse {
-    private String message;
+    String message;
 }
 
 
-interface ReservationRepository extends ReactiveCrudRepository<Reservation, Integer> {
+@Controller
+@RequiredArgsConstructor
+class ReservationController {
+
+    static final int DEFAULT_BATCH_SIZE = 500;
+
+    static final int MAX_LOOKUP_IDS = 1000;
+
+    private final ReservationIndex index;
+
+    private final ReservationRepository reservationRepository;
+
+    private final FlightRecorderEvents flightRecorder;
+
+    @MessageMapping("reservations.batched")
+    Flux<List<Reservation>> batched(@Payload(required = false) Integer batchSize) {
+        var size = batchSize == null || batchSize <= 0 ? DEFAULT_BATCH_SIZE : batchSize;
+        return reservationRepository
+                .findAll()
+                .transform(flightRecorder.query("Reservation.findAll"))
+                .buffer(size)
+                .transform(flightRecorder.stream("reservations.batched"));
+    }
+
+    /**
+     * The reservations with the given ids, in no particular order, found with a single
+     * {@code WHERE id IN (...)} query. Ids without a reservation are left out.
+     */
+    @MessageMapping("reservations.lookup")
+    Flux<Reservation> lookup(List<Integer> ids) {
+        if (ids.size() > MAX_LOOKUP_IDS) {
+            return Flux.error(new IllegalArgumentException("at most " + MAX_LOOKUP_IDS + " ids can be looked up at once"));
+        }
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        return reservationRepository
+                .findAllById(ids)
+                .transform(flightRecorder.query("Reservation.findAllById"))
+                .transform(flightRecorder.stream("reservations.lookup"));
+    }
+
+    @MessageMapping("reservations.search")
+    Flux<Reservation> search(ReservationSearchRequest request) {
+        return Flux
+                .defer(() -> Flux.fromIterable(index.search(request.getQuery(), request.getLimit())))
+                .transform(flightRecorder.stream("reservations.search"));
+    }
 }
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
+class ReservationSearchRequest {
+
+    static final int DEFAULT_LIMIT = 10;
+
+    private String query;
+    private int limit = DEFAULT_LIMIT;
+}
+
+interface ReservationRepository extends ReactiveCrudRepository<Reservation, Integer>, IndexedReservationDeletes {
+}
+
+@Value
 class Reservation {
 
     @Id
-    private Integer id;
-    private String name;
+    @With
+    Integer id;
+    String name;
 }
\ No newline at end of file
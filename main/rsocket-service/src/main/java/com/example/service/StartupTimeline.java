@@ -0,0 +1,129 @@
+package com.example.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.rsocket.context.RSocketServerInitializedEvent;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerInitializedEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records how long each singleton takes to create during context refresh and when the
+ * servers start listening, then reports it once the application is ready. Time spent
+ * creating a bean's dependencies is reported separately from the bean's own time.
+ */
+@Log4j2
+@RequiredArgsConstructor
+class StartupTimeline implements InstantiationAwareBeanPostProcessor, ApplicationListener<ApplicationEvent> {
+
+    private static final int LOGGED_BEANS = 10;
+
+    private final Path report;
+
+    private final Deque<Creation> creating = new ArrayDeque<>();
+
+    private final List<BeanTiming> timings = new ArrayList<>();
+
+    private final Map<String, Long> milestones = new LinkedHashMap<>();
+
+    private boolean recording = true;
+
+    @Override
+    public synchronized Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) {
+        if (this.recording) {
+            this.creating.push(new Creation(beanName, System.nanoTime()));
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (this.recording && this.creating.stream().anyMatch(c -> c.name.equals(beanName))) {
+            var creation = this.creating.pop();
+            while (!creation.name.equals(beanName)) {
+                creation = this.creating.pop();
+            }
+            var total = System.nanoTime() - creation.started;
+            var parent = this.creating.peek();
+            if (parent != null) {
+                parent.dependencies += total;
+            }
+            this.timings.add(new BeanTiming(beanName, bean.getClass().getName(), total, total - creation.dependencies));
+        }
+        return bean;
+    }
+
+    @Override
+    public synchronized void onApplicationEvent(ApplicationEvent event) {
+        if (!this.recording) {
+            return;
+        }
+        if (event instanceof ReactiveWebServerInitializedEvent) {
+            milestone("http server listening");
+        }
+        else if (event instanceof RSocketServerInitializedEvent) {
+            milestone("rsocket server listening");
+        }
+        else if (event instanceof ApplicationReadyEvent) {
+            milestone("application ready");
+            this.recording = false;
+            report();
+        }
+    }
+
+    private void milestone(String name) {
+        this.milestones.put(name, ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+
+    private void report() {
+        this.timings.sort(Comparator.comparingLong(BeanTiming::getSelf).reversed());
+        var lines = new ArrayList<String>();
+        this.milestones.forEach((name, uptime) -> lines.add(String.format("%-30s %6d ms after JVM start", name, uptime)));
+        lines.add("");
+        lines.add(String.format("%10s %10s  %s", "self ms", "total ms", "bean"));
+        this.timings.forEach(timing -> lines.add(String.format("%10.1f %10.1f  %s (%s)",
+                timing.getSelf() / 1e6, timing.getTotal() / 1e6, timing.getName(), timing.getType())));
+        lines.stream().limit(this.milestones.size() + 2 + LOGGED_BEANS).forEach(log::info);
+        if (this.report != null) {
+            try {
+                Files.write(this.report, lines);
+                log.info("startup timeline of " + this.timings.size() + " beans written to " + this.report.toAbsolutePath());
+            }
+            catch (IOException e) {
+                log.warn("could not write startup timeline to " + this.report, e);
+            }
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class Creation {
+
+        private final String name;
+        private final long started;
+        private long dependencies;
+    }
+
+    @Value
+    private static class BeanTiming {
+
+        String name;
+        String type;
+        long total;
+        long self;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.service;
+
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Option;
+import lombok.Data;
+import org.springframework.boot.autoconfigure.r2dbc.ConnectionFactoryOptionsBuilderCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@ConfigurationProperties("service.r2dbc.statements")
+class StatementCacheProperties {
+
+    /**
+     * Named prepared statements each connection keeps, least recently used first out.
+     * Zero prepares every statement afresh; -1 keeps them all.
+     */
+    private int cacheSize = 256;
+}
+
+@Configuration(proxyBeanMethods = false)
+class StatementCacheConfiguration {
+
+    @Bean
+    ConnectionFactoryOptionsBuilderCustomizer statementCache(StatementCacheProperties properties) {
+        return builder -> StatementCaching.apply(builder, properties);
+    }
+}
+
+/**
+ * Configures r2dbc-postgresql's per-connection cache of named prepared statements, so
+ * a repository query is parsed and planned once per connection rather than on every
+ * execution. Read replica pools get the same cache as the primary.
+ */
+class StatementCaching {
+
+    static final Option<Integer> PREPARED_STATEMENT_CACHE_QUERIES = Option.valueOf("preparedStatementCacheQueries");
+
+    static ConnectionFactoryOptions.Builder apply(ConnectionFactoryOptions.Builder builder, StatementCacheProperties properties) {
+        return builder.option(PREPARED_STATEMENT_CACHE_QUERIES, properties.getCacheSize());
+    }
+}
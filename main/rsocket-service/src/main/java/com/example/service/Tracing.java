@@ -0,0 +1,58 @@
+package com.example.service;
+
+import com.example.tracing.ServerTracingRSocket;
+import com.example.tracing.Tracer;
+import com.example.tracing.TracingProperties;
+import com.example.tracing.TracingWebFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.rsocket.server.RSocketServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Traces RSocket routes, HTTP requests and repository queries with the shared
+ * {@link Tracer}.
+ */
+@Configuration(proxyBeanMethods = false)
+class TracingConfiguration {
+
+    @Bean
+    @ConfigurationProperties("service.tracing")
+    TracingProperties tracingProperties() {
+        var properties = new TracingProperties();
+        properties.setExport("service-traces.jsonl");
+        return properties;
+    }
+
+    @Bean
+    Tracer tracer(TracingProperties properties, ObjectMapper objectMapper) {
+        return new Tracer(properties, objectMapper, "service");
+    }
+
+    @Bean
+    RSocketServerCustomizer rsocketTracing(Tracer tracer) {
+        return server -> server.interceptors(registry -> registry.forResponder(responder -> new ServerTracingRSocket(responder, tracer)));
+    }
+
+    @Bean
+    TracingWebFilter httpTracing(Tracer tracer) {
+        return new TracingWebFilter(tracer);
+    }
+
+    @Bean
+    static BeanPostProcessor repositoryTracing(ObjectProvider<Tracer> tracer) {
+        return new BeanPostProcessor() {
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof ReservationRepository) {
+                    return Tracer.tracedQueries((ReservationRepository) bean, ReservationRepository.class, tracer);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.service;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.rsocket.DuplexConnection;
+import io.rsocket.frame.CancelFrameFlyweight;
+import io.rsocket.frame.ErrorFrameFlyweight;
+import io.rsocket.frame.FrameHeaderFlyweight;
+import io.rsocket.frame.FrameType;
+import io.rsocket.frame.PayloadFrameFlyweight;
+import io.rsocket.frame.RequestNFrameFlyweight;
+import io.rsocket.frame.RequestStreamFrameFlyweight;
+import io.rsocket.util.ByteBufPayload;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.UnicastProcessor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BudgetedConnectionTests {
+
+	private final FakeConnection source = new FakeConnection();
+
+	private final UnicastProcessor<ByteBuf> outbound = UnicastProcessor.create();
+
+	private final List<ByteBuf> passed = new ArrayList<>();
+
+	@BeforeEach
+	void connect() {
+		var properties = new ConnectionBudgetProperties();
+		properties.setMaxInboundFrameSize(DataSize.ofKilobytes(1));
+		properties.setOutboundBudget(DataSize.ofBytes(1000));
+		properties.setRequestChunk(8);
+		var connection = new BudgetedConnection(this.source, properties);
+		connection.receive().subscribe(this.passed::add);
+		connection.send(this.outbound).subscribe();
+	}
+
+	@Test
+	void passesInitialAndRequestedDemandOnInChunks() {
+		this.source.write(Long.MAX_VALUE);
+		this.source.inbound.onNext(requestStream(1, 100));
+		this.source.inbound.onNext(RequestNFrameFlyweight.encode(ByteBufAllocator.DEFAULT, 1, 50));
+		assertThat(this.passed).hasSize(1);
+		assertThat(RequestStreamFrameFlyweight.initialRequestN(this.passed.get(0))).isEqualTo(8);
+
+		for (var i = 0; i < 3; i++) {
+			this.outbound.onNext(next(1));
+		}
+		assertThat(this.passed).hasSize(1);
+		this.outbound.onNext(next(1));
+		assertThat(this.passed).hasSize(2);
+		assertThat(requestN(this.passed.get(1))).isEqualTo(4);
+	}
+
+	@Test
+	void pausesAtTheBudgetAndResumesOnceHalfOfItIsWritten() {
+		this.source.inbound.onNext(requestStream(1, 100));
+		for (var i = 0; i < 4; i++) {
+			this.outbound.onNext(next(1));
+		}
+		assertThat(this.passed).hasSize(1);
+
+		this.source.write(2);
+		assertThat(this.passed).hasSize(1);
+		this.source.write(1);
+		assertThat(this.passed).hasSize(2);
+		assertThat(requestN(this.passed.get(1))).isEqualTo(4);
+	}
+
+	@Test
+	void closesTheConnectionOnAnOversizedFrame() {
+		this.source.inbound.onNext(requestStream(1, 1, new byte[2048]));
+		this.source.inbound.onNext(requestStream(3, 1));
+		assertThat(this.passed).isEmpty();
+		assertThat(this.source.disposed).isTrue();
+		assertThat(this.source.sentOne).hasSize(1);
+		assertThat(FrameHeaderFlyweight.frameType(this.source.sentOne.get(0))).isEqualTo(FrameType.ERROR);
+		assertThat(FrameHeaderFlyweight.streamId(this.source.sentOne.get(0))).isEqualTo(0);
+	}
+
+	@Test
+	void forgetsAStreamTheClientCancels() {
+		this.source.inbound.onNext(requestStream(1, 100));
+		this.source.inbound.onNext(CancelFrameFlyweight.encode(ByteBufAllocator.DEFAULT, 1));
+		this.source.inbound.onNext(RequestNFrameFlyweight.encode(ByteBufAllocator.DEFAULT, 1, 50));
+		assertThat(this.passed).hasSize(3);
+		assertThat(requestN(this.passed.get(2))).isEqualTo(50);
+	}
+
+	@Test
+	void forgetsAStreamTheClientErrors() {
+		this.source.inbound.onNext(requestStream(1, 100));
+		this.source.inbound.onNext(ErrorFrameFlyweight.encode(ByteBufAllocator.DEFAULT, 1, new RuntimeException("gone")));
+		this.source.inbound.onNext(RequestNFrameFlyweight.encode(ByteBufAllocator.DEFAULT, 1, 50));
+		assertThat(this.passed).hasSize(3);
+		assertThat(requestN(this.passed.get(2))).isEqualTo(50);
+	}
+
+	private static ByteBuf requestStream(int streamId, int initial) {
+		return requestStream(streamId, initial, new byte[0]);
+	}
+
+	private static ByteBuf requestStream(int streamId, int initial, byte[] data) {
+		return RequestStreamFrameFlyweight.encode(ByteBufAllocator.DEFAULT, streamId, false, initial, ByteBufPayload.create(data));
+	}
+
+	/**
+	 * A little over a quarter of the budget, so the fourth unwritten one exhausts it.
+	 */
+	private static ByteBuf next(int streamId) {
+		return PayloadFrameFlyweight.encodeNext(ByteBufAllocator.DEFAULT, streamId, ByteBufPayload.create(new byte[250]));
+	}
+
+	private static long requestN(ByteBuf frame) {
+		assertThat(FrameHeaderFlyweight.frameType(frame)).isEqualTo(FrameType.REQUEST_N);
+		return RequestNFrameFlyweight.requestN(frame);
+	}
+
+	/**
+	 * Frames from the client are pushed into {@link #inbound}. Frames for the client are
+	 * written only as the test asks, so they stay queued in the connection until then.
+	 */
+	private static class FakeConnection implements DuplexConnection {
+
+		private final UnicastProcessor<ByteBuf> inbound = UnicastProcessor.create();
+
+		private final List<ByteBuf> sentOne = new ArrayList<>();
+
+		private final List<ByteBuf> written = new ArrayList<>();
+
+		private BaseSubscriber<ByteBuf> writer;
+
+		private boolean disposed;
+
+		void write(long n) {
+			this.writer.request(n);
+		}
+
+		@Override
+		public Mono<Void> send(Publisher<ByteBuf> frames) {
+			return Mono.fromRunnable(() -> Flux.from(frames).subscribe(this.writer = new BaseSubscriber<>() {
+
+				@Override
+				protected void hookOnSubscribe(Subscription subscription) {
+				}
+
+				@Override
+				protected void hookOnNext(ByteBuf frame) {
+					FakeConnection.this.written.add(frame);
+				}
+			}));
+		}
+
+		@Override
+		public Mono<Void> sendOne(ByteBuf frame) {
+			this.sentOne.add(frame);
+			return Mono.empty();
+		}
+
+		@Override
+		public Flux<ByteBuf> receive() {
+			return this.inbound;
+		}
+
+		@Override
+		public ByteBufAllocator alloc() {
+			return ByteBufAllocator.DEFAULT;
+		}
+
+		@Override
+		public double availability() {
+			return this.disposed ? 0 : 1;
+		}
+
+		@Override
+		public Mono<Void> onClose() {
+			return Mono.never();
+		}
+
+		@Override
+		public void dispose() {
+			this.disposed = true;
+		}
+
+		@Override
+		public boolean isDisposed() {
+			return this.disposed;
+		}
+	}
+
+}
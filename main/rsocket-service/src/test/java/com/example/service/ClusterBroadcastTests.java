@@ -0,0 +1,38 @@
+package com.example.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+class ClusterBroadcastTests {
+
+	private final LoopbackClusterBroadcast broadcast = new LoopbackClusterBroadcast("node-a");
+
+	@Test
+	void deliversEachMessageOncePerOriginInOrder() {
+		StepVerifier
+				.create(broadcast.messages("greetings").map(ClusterMessage::getMessage).take(3))
+				.then(() -> {
+					broadcast.deliver(new ClusterMessage("greetings", "node-b", "epoch-1", 1, "one"));
+					broadcast.deliver(new ClusterMessage("greetings", "node-b", "epoch-1", 1, "one again"));
+					broadcast.deliver(new ClusterMessage("other", "node-b", "epoch-1", 2, "elsewhere"));
+					broadcast.deliver(new ClusterMessage("greetings", "node-b", "epoch-1", 3, "three"));
+					broadcast.deliver(new ClusterMessage("greetings", "node-b", "epoch-1", 2, "two, too late"));
+					broadcast.publish("greetings", "local").block();
+				})
+				.expectNext("one", "three", "local")
+				.verifyComplete();
+	}
+
+	@Test
+	void acceptsAnOriginThatRestartedWithTheSameId() {
+		StepVerifier
+				.create(broadcast.messages("greetings").map(ClusterMessage::getMessage).take(2))
+				.then(() -> {
+					broadcast.deliver(new ClusterMessage("greetings", "node-b", "epoch-1", 5, "before"));
+					broadcast.deliver(new ClusterMessage("greetings", "node-b", "epoch-2", 1, "after"));
+				})
+				.expectNext("before", "after")
+				.verifyComplete();
+	}
+
+}
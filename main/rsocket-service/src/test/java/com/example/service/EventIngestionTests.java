@@ -0,0 +1,104 @@
+package com.example.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventIngestionTests {
+
+	private final BlockingQueue<List<IngestEvent>> batches = new LinkedBlockingQueue<>();
+
+	private EventIngestion ingestion;
+
+	@AfterEach
+	void stop() {
+		this.ingestion.stop();
+	}
+
+	@Test
+	void writesAsSoonAsABatchIsFull() throws InterruptedException {
+		start(100, 3, Duration.ofHours(1));
+		for (var i = 0; i < 3; i++) {
+			this.ingestion.accept(event(i));
+		}
+		assertThat(next()).containsExactly(event(0), event(1), event(2));
+		assertThat(this.batches.poll(200, TimeUnit.MILLISECONDS)).isNull();
+		this.ingestion.accept(event(3));
+		this.ingestion.accept(event(4));
+		assertThat(this.batches.poll(200, TimeUnit.MILLISECONDS)).isNull();
+		this.ingestion.accept(event(5));
+		assertThat(next()).containsExactly(event(3), event(4), event(5));
+	}
+
+	@Test
+	void writesWithinTheFlushInterval() throws InterruptedException {
+		start(100, 1_000, Duration.ofMillis(50));
+		var started = System.nanoTime();
+		this.ingestion.accept(event(1));
+		assertThat(next()).containsExactly(event(1));
+		assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(1));
+	}
+
+	@Test
+	void dropsAndCountsEventsThatArriveWhileTheBufferIsFull() {
+		start(2, 1_000, Duration.ofHours(1));
+		var registry = new SimpleMeterRegistry();
+		this.ingestion.bindTo(registry);
+		assertThat(this.ingestion.accept(event(1))).isTrue();
+		assertThat(this.ingestion.accept(event(2))).isTrue();
+		assertThat(this.ingestion.accept(event(3))).isFalse();
+		assertThat(registry.get("service.ingest.events").tag("outcome", "dropped").functionCounter().count()).isEqualTo(1);
+		assertThat(registry.get("service.ingest.events").tag("outcome", "received").functionCounter().count()).isEqualTo(3);
+		assertThat(registry.get("service.ingest.buffered").gauge().value()).isEqualTo(2);
+	}
+
+	@Test
+	void sendsAReceiptEveryReceiptEveryEvents() {
+		var properties = start(4, 1_000, Duration.ofHours(1));
+		properties.setReceiptEvery(3);
+		var controller = new EventIngestionController(this.ingestion, properties);
+		StepVerifier
+				.create(controller.ingest(Flux.range(0, 7).map(EventIngestionTests::event)))
+				.expectNext(new IngestReceipt(3, 0), new IngestReceipt(1, 2), new IngestReceipt(0, 1))
+				.verifyComplete();
+	}
+
+	private IngestProperties start(int bufferSize, int batchSize, Duration flushInterval) {
+		var properties = new IngestProperties();
+		properties.setBufferSize(bufferSize);
+		properties.setBatchSize(batchSize);
+		properties.setFlushInterval(flushInterval);
+		this.ingestion = new EventIngestion(properties, null) {
+
+			@Override
+			Mono<Integer> insert(List<IngestEvent> batch) {
+				EventIngestionTests.this.batches.add(batch);
+				return Mono.just(batch.size());
+			}
+		};
+		this.ingestion.start();
+		return properties;
+	}
+
+	private List<IngestEvent> next() throws InterruptedException {
+		var batch = this.batches.poll(5, TimeUnit.SECONDS);
+		assertThat(batch).isNotNull();
+		return batch;
+	}
+
+	private static IngestEvent event(int i) {
+		return new IngestEvent("click", "test", i, "{}");
+	}
+
+}
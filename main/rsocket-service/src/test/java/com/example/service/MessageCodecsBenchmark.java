@@ -0,0 +1,56 @@
+package com.example.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+
+/**
+ * Bytes allocated per greeting and per reservation, building and serializing them the
+ * way the service used to and the way it does now. Run with {@code mvn test
+ * -Dbenchmark=true -Dtest=MessageCodecsBenchmark}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class MessageCodecsBenchmark {
+
+	private final ObjectMapper codecs = new ObjectMapper().registerModule(new MessageCodecs().messageCodecsModule());
+
+	@Test
+	void allocationPerMessage() throws Exception {
+		var reflective = new ObjectMapper();
+		var name = "Cornelia";
+		var timestamp = Instant.now().toString();
+		var greeting = "Hello " + name + " @ ";
+		var reservation = new Reservation(42, name);
+		for (var round = 0; round < 3; round++) {
+			var before = allocated(() -> reflective.writeValueAsBytes(new GreetingResponse("Hello " + name + " @ " + Instant.now())));
+			var after = allocated(() -> codecs.writeValueAsBytes(new GreetingResponse(greeting.concat(timestamp))));
+			System.out.printf("greeting:    %5.0f bytes before, %5.0f bytes after%n", before, after);
+			before = allocated(() -> reflective.writeValueAsBytes(reservation));
+			after = allocated(() -> codecs.writeValueAsBytes(reservation));
+			System.out.printf("reservation: %5.0f bytes before, %5.0f bytes after%n", before, after);
+		}
+	}
+
+	private static double allocated(Message message) throws Exception {
+		var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		var thread = Thread.currentThread().getId();
+		var messages = 1_000_000;
+		for (var i = 0; i < messages / 10; i++) {
+			message.build();
+		}
+		var started = threads.getThreadAllocatedBytes(thread);
+		for (var i = 0; i < messages; i++) {
+			message.build();
+		}
+		return (threads.getThreadAllocatedBytes(thread) - started) / (double) messages;
+	}
+
+	interface Message {
+
+		byte[] build() throws Exception;
+	}
+
+}
@@ -0,0 +1,26 @@
+package com.example.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageCodecsTests {
+
+	private final ObjectMapper codecs = new ObjectMapper().registerModule(new MessageCodecs().messageCodecsModule());
+
+	@Test
+	void roundTripsMessages() throws Exception {
+		var reservation = new Reservation(1, "Josh");
+		var json = codecs.writeValueAsString(reservation);
+		assertThat(json).isEqualTo("{\"id\":1,\"name\":\"Josh\"}");
+		assertThat(codecs.readValue(json, Reservation.class)).isEqualTo(reservation);
+		assertThat(codecs.readValue("{\"name\":\"Olga\",\"extra\":{\"a\":[1,2]},\"id\":null}", Reservation.class))
+				.isEqualTo(new Reservation(null, "Olga"));
+		assertThat(codecs.readValue(codecs.writeValueAsString(new GreetingResponse("Hello")), GreetingResponse.class))
+				.isEqualTo(new GreetingResponse("Hello"));
+		assertThat(codecs.readValue(codecs.writeValueAsString(new GreetingRequest("Mario")), GreetingRequest.class))
+				.isEqualTo(new GreetingRequest("Mario"));
+	}
+
+}
@@ -0,0 +1,54 @@
+package com.example.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.Unpooled;
+import io.rsocket.util.ByteBufPayload;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Bytes on the wire and compression CPU time for a million-row reservation stream sent
+ * as {@code reservations.batched} frames. Run with {@code mvn test -Dbenchmark=true
+ * -Dtest=PayloadCompressionBenchmark}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PayloadCompressionBenchmark {
+
+	private static final int ROWS = 1_000_000;
+
+	private static final String[] NAMES = {"Josh", "Cornelia", "Dr. Syer", "Olga", "Violetta", "Madhura", "Mario", "Stéphane"};
+
+	private final ObjectMapper json = new ObjectMapper();
+
+	@Test
+	void reservationStream() throws Exception {
+		var threads = ManagementFactory.getThreadMXBean();
+		for (var batchSize : new int[] {1, 100, ReservationController.DEFAULT_BATCH_SIZE}) {
+			long raw = 0, wire = 0, cpu = 0;
+			var batch = new ArrayList<Reservation>(batchSize);
+			for (var id = 1; id <= ROWS; id++) {
+				batch.add(new Reservation(id, NAMES[id % NAMES.length]));
+				if (batch.size() < batchSize && id < ROWS) {
+					continue;
+				}
+				var payload = ByteBufPayload.create(Unpooled.wrappedBuffer(this.json.writeValueAsBytes(batch)));
+				raw += payload.data().readableBytes();
+				var started = threads.getCurrentThreadCpuTime();
+				var sent = PayloadCompression.compress(payload, 1024);
+				cpu += threads.getCurrentThreadCpuTime() - started;
+				wire += sent.data().readableBytes() + sent.metadata().readableBytes();
+				sent.release();
+				batch.clear();
+			}
+			System.out.printf("batch %4d: %,d bytes raw, %,d bytes on the wire (%.1f%%), %,d ms compressing%n",
+					batchSize, raw, wire, 100.0 * wire / raw, cpu / 1_000_000);
+			assertThat(wire).isLessThanOrEqualTo(raw);
+		}
+	}
+
+}
@@ -0,0 +1,70 @@
+package com.example.service;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.rsocket.exceptions.RejectedException;
+import io.rsocket.metadata.WellKnownMimeType;
+import io.rsocket.util.ByteBufPayload;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.rsocket.api.PayloadExchangeType;
+import org.springframework.security.rsocket.core.DefaultPayloadExchange;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+
+class RateLimitingTests {
+
+	private static final MimeType ROUTING = MimeTypeUtils.parseMimeType(WellKnownMimeType.MESSAGE_RSOCKET_ROUTING.getString());
+
+	private final RateLimitPayloadInterceptor interceptor = new RateLimitPayloadInterceptor(buckets(), RSocketStrategies.create());
+
+	@Test
+	void chargesTheRequestChannelOnceHoweverManyPayloadsItCarries() {
+		StepVerifier.create(intercept(PayloadExchangeType.REQUEST_CHANNEL, "events.ingest.channel")).verifyComplete();
+		for (var i = 0; i < 500; i++) {
+			StepVerifier.create(intercept(PayloadExchangeType.PAYLOAD, null)).verifyComplete();
+		}
+		StepVerifier.create(intercept(PayloadExchangeType.REQUEST_CHANNEL, "events.ingest.channel")).verifyComplete();
+		StepVerifier.create(intercept(PayloadExchangeType.REQUEST_CHANNEL, "events.ingest.channel")).verifyError(RejectedException.class);
+	}
+
+	@Test
+	void chargesEveryFireAndForget() {
+		StepVerifier.create(intercept(PayloadExchangeType.FIRE_AND_FORGET, "events.ingest")).verifyComplete();
+		StepVerifier.create(intercept(PayloadExchangeType.FIRE_AND_FORGET, "events.ingest")).verifyComplete();
+		StepVerifier.create(intercept(PayloadExchangeType.FIRE_AND_FORGET, "events.ingest")).verifyError(RejectedException.class);
+	}
+
+	private Mono<Void> intercept(PayloadExchangeType type, String route) {
+		var payload = route == null
+				? ByteBufPayload.create(Unpooled.EMPTY_BUFFER)
+				: ByteBufPayload.create(Unpooled.EMPTY_BUFFER, routing(route));
+		var exchange = new DefaultPayloadExchange(type, payload, ROUTING, MimeTypeUtils.APPLICATION_JSON);
+		var user = new UsernamePasswordAuthenticationToken("jlong", null, AuthorityUtils.createAuthorityList("ROLE_USER"));
+		return this.interceptor
+				.intercept(exchange, next -> Mono.empty())
+				.subscriberContext(ReactiveSecurityContextHolder.withAuthentication(user));
+	}
+
+	private static ByteBuf routing(String route) {
+		var tag = route.getBytes(StandardCharsets.UTF_8);
+		return Unpooled.buffer(tag.length + 1).writeByte(tag.length).writeBytes(tag);
+	}
+
+	/**
+	 * Two permits up front and too slow a refill to matter during a test.
+	 */
+	private static TokenBuckets buckets() {
+		var properties = new RateLimitProperties();
+		properties.getRoles().put("USER", new RateLimitProperties.Limit(0.001, 2));
+		return new TokenBuckets(properties);
+	}
+
+}
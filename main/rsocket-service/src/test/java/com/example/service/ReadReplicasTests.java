@@ -0,0 +1,62 @@
+package com.example.service;
+
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ReadReplicasTests {
+
+	private final ReadReplicas replicas = replicas(Duration.ofMinutes(1));
+
+	@Test
+	void spreadsReadsOverHealthyReplicas() {
+		replicas.health("a", true);
+		replicas.health("b", true);
+		assertThat(replicas.select(true, null)).isEqualTo("a");
+		assertThat(replicas.select(true, null)).isEqualTo("b");
+		replicas.health("a", false);
+		assertThat(replicas.select(true, null)).isEqualTo("b");
+		assertThat(replicas.select(true, null)).isEqualTo("b");
+		replicas.health("b", false);
+		assertThat(replicas.select(true, null)).isNull();
+	}
+
+	@Test
+	void sendsWritesAndReadsAfterWritesToThePrimary() {
+		replicas.health("a", true);
+		replicas.wrote("jlong");
+		assertThat(replicas.select(false, "jlong")).isNull();
+		assertThat(replicas.select(true, "jlong")).isNull();
+		assertThat(replicas.select(true, "someone else")).isEqualTo("a");
+	}
+
+	@Test
+	void doesNotTakeUnmarkedPrimaryQueriesForWrites() {
+		replicas.health("a", true);
+		assertThat(replicas.select(false, "jlong")).isNull();
+		assertThat(replicas.select(true, "jlong")).isEqualTo("a");
+	}
+
+	@Test
+	void readsFromReplicasOnceTheWindowHasPassed() {
+		var replicas = replicas(Duration.ZERO);
+		replicas.health("a", true);
+		replicas.wrote("jlong");
+		assertThat(replicas.select(true, "jlong")).isEqualTo("a");
+	}
+
+	private static ReadReplicas replicas(Duration readYourWrites) {
+		var factories = new LinkedHashMap<String, ConnectionFactory>();
+		factories.put("a", mock(ConnectionFactory.class));
+		factories.put("b", mock(ConnectionFactory.class));
+		var properties = new ReadReplicaProperties();
+		properties.setReadYourWrites(readYourWrites);
+		return new ReadReplicas(factories, properties);
+	}
+
+}
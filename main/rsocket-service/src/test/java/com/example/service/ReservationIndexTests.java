@@ -0,0 +1,57 @@
+package com.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReservationIndexTests {
+
+	private final ReservationIndex index = new ReservationIndex();
+
+	@Test
+	void ranksExactThenPrefixThenTypos() {
+		index.put(new Reservation(1, "Josh"));
+		index.put(new Reservation(2, "Joshua"));
+		index.put(new Reservation(3, "Jose"));
+		index.put(new Reservation(4, "Madhura"));
+
+		assertThat(index.search("josh", 10))
+				.extracting(Reservation::getId)
+				.containsExactly(1, 2, 3);
+	}
+
+	@Test
+	void ranksShorterPrefixMatchesFirstWhateverTheirPlaceInTheTrie() {
+		index.put(new Reservation(1, "Joachim"));
+		index.put(new Reservation(2, "Joanne"));
+		index.put(new Reservation(3, "Joe"));
+		index.put(new Reservation(4, "Jon"));
+
+		assertThat(index.search("jo", 2))
+				.extracting(Reservation::getName)
+				.containsExactly("Joe", "Jon");
+	}
+
+	@Test
+	void toleratesTyposInLongerQueries() {
+		index.put(new Reservation(1, "Madhura"));
+		index.put(new Reservation(2, "Mario"));
+
+		assertThat(index.search("madhira", 10))
+				.extracting(Reservation::getName)
+				.containsExactly("Madhura");
+	}
+
+	@Test
+	void followsRenamesAndDeletes() {
+		index.put(new Reservation(1, "Olga"));
+		index.put(new Reservation(1, "Violetta"));
+		assertThat(index.search("olga", 10)).isEmpty();
+		assertThat(index.search("viol", 10)).extracting(Reservation::getId).containsExactly(1);
+
+		index.remove(1);
+		assertThat(index.search("viol", 10)).isEmpty();
+		assertThat(index.size()).isZero();
+	}
+
+}
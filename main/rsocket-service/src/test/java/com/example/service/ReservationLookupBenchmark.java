@@ -0,0 +1,79 @@
+package com.example.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@code ReservationRepository.findById} latency under concurrent load with the prepared
+ * statement cache off and on. Each run starts the service with Boot's own connection
+ * factory and pool, so it measures what the service does with
+ * {@code service.r2dbc.statements.cache-size}. Needs a Postgres with the
+ * {@code reservation} table; run with {@code mvn test -Dbenchmark=true
+ * -Dtest=ReservationLookupBenchmark}, and {@code -Dbenchmark.r2dbc.url=...} to point it
+ * elsewhere.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ReservationLookupBenchmark {
+
+	private static final String URL = System.getProperty("benchmark.r2dbc.url", "r2dbc:postgres://localhost/orders");
+
+	private static final int LOOKUPS = 20_000;
+
+	private static final int CONCURRENCY = 64;
+
+	private static final int IDS = 1_000;
+
+	@Test
+	void findById() {
+		for (var cacheSize : new int[] {0, 256}) {
+			try (var context = start(cacheSize)) {
+				var repository = context.getBean(ReservationRepository.class);
+				var ids = new ArrayList<Integer>(LOOKUPS);
+				for (var i = 0; i < LOOKUPS; i++) {
+					ids.add(ThreadLocalRandom.current().nextInt(1, IDS + 1));
+				}
+				lookups(repository, ids.subList(0, LOOKUPS / 10)).blockLast();
+				var started = System.nanoTime();
+				var latencies = lookups(repository, ids).collectList().block();
+				var elapsed = System.nanoTime() - started;
+				var sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+				Arrays.sort(sorted);
+				System.out.printf("findById, cache %d: %,.0f lookups/s, p50 %.2f ms, p99 %.2f ms%n", cacheSize,
+						LOOKUPS / (elapsed / 1e9), sorted[sorted.length / 2] / 1e6, sorted[(int) (sorted.length * 0.99)] / 1e6);
+				assertThat(sorted).isNotEmpty();
+			}
+		}
+	}
+
+	private static ConfigurableApplicationContext start(int cacheSize) {
+		return new SpringApplicationBuilder(ServiceApplication.class)
+				.properties(
+						"spring.r2dbc.url=" + URL,
+						"spring.r2dbc.pool.max-size=" + CONCURRENCY,
+						"service.r2dbc.statements.cache-size=" + cacheSize,
+						"server.port=0",
+						"spring.rsocket.server.port=0",
+						"service.startup.timeline=false")
+				.run();
+	}
+
+	private static Flux<Long> lookups(ReservationRepository repository, Iterable<Integer> ids) {
+		return Flux
+				.fromIterable(ids)
+				.flatMap(id -> Mono.defer(() -> {
+					var started = System.nanoTime();
+					return repository.findById(id).then(Mono.fromSupplier(() -> System.nanoTime() - started));
+				}), CONCURRENCY);
+	}
+
+}
@@ -0,0 +1,23 @@
+package com.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReservationSnapshotTests {
+
+	@Test
+	void sendsGzipOnlyWhenItsQValueAllowsIt() {
+		assertThat(ReservationSnapshot.acceptsGzip(List.of("gzip, deflate, br"))).isTrue();
+		assertThat(ReservationSnapshot.acceptsGzip(List.of("deflate;q=1.0, GZIP;q=0.5"))).isTrue();
+		assertThat(ReservationSnapshot.acceptsGzip(List.of("gzip;q=0"))).isFalse();
+		assertThat(ReservationSnapshot.acceptsGzip(List.of("gzip ; q=0.000, identity"))).isFalse();
+		assertThat(ReservationSnapshot.acceptsGzip(List.of("*"))).isTrue();
+		assertThat(ReservationSnapshot.acceptsGzip(List.of("*;q=0.1", "gzip;q=0"))).isFalse();
+		assertThat(ReservationSnapshot.acceptsGzip(List.of("identity"))).isFalse();
+		assertThat(ReservationSnapshot.acceptsGzip(List.of())).isFalse();
+	}
+
+}
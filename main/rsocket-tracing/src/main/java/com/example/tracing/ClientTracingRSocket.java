@@ -0,0 +1,55 @@
+package com.example.tracing;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.metadata.CompositeMetadataFlyweight;
+import io.rsocket.util.ByteBufPayload;
+import io.rsocket.util.RSocketProxy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Wraps each request in a span named after its route, and passes the span on to the
+ * other side in a {@link TraceContext#MIME_TYPE} metadata entry.
+ */
+public class ClientTracingRSocket extends RSocketProxy {
+
+    private final Tracer tracer;
+
+    public ClientTracingRSocket(RSocket source, Tracer tracer) {
+        super(source);
+        this.tracer = tracer;
+    }
+
+    @Override
+    public Mono<Void> fireAndForget(Payload payload) {
+        return this.tracer.client(RSocketMetadata.spanName(payload), context -> super.fireAndForget(traced(payload, context)));
+    }
+
+    @Override
+    public Mono<Payload> requestResponse(Payload payload) {
+        return this.tracer.client(RSocketMetadata.spanName(payload), context -> super.requestResponse(traced(payload, context)));
+    }
+
+    @Override
+    public Flux<Payload> requestStream(Payload payload) {
+        return this.tracer.clientStream(RSocketMetadata.spanName(payload), context -> super.requestStream(traced(payload, context)));
+    }
+
+    private static Payload traced(Payload payload, TraceContext context) {
+        if (context == null) {
+            return payload;
+        }
+        var metadata = ByteBufAllocator.DEFAULT.compositeBuffer();
+        if (payload.hasMetadata() && payload.sliceMetadata().isReadable()) {
+            metadata.addComponent(true, payload.sliceMetadata().retain());
+        }
+        CompositeMetadataFlyweight.encodeAndAddMetadata(metadata, ByteBufAllocator.DEFAULT, TraceContext.MIME_TYPE,
+                ByteBufUtil.writeAscii(ByteBufAllocator.DEFAULT, context.traceparent()));
+        var traced = ByteBufPayload.create(payload.sliceData().retain(), metadata);
+        payload.release();
+        return traced;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.tracing;
+
+import io.netty.buffer.ByteBuf;
+import io.rsocket.Payload;
+import io.rsocket.metadata.CompositeMetadata;
+import io.rsocket.metadata.RoutingMetadata;
+import io.rsocket.metadata.WellKnownMimeType;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads what tracing needs from a request's composite metadata without copying it.
+ */
+final class RSocketMetadata {
+
+    private RSocketMetadata() {
+    }
+
+    static String spanName(Payload payload) {
+        var route = entry(payload, WellKnownMimeType.MESSAGE_RSOCKET_ROUTING.getString());
+        if (route != null) {
+            for (var tag : new RoutingMetadata(route)) {
+                return "rsocket " + tag;
+            }
+        }
+        return "rsocket";
+    }
+
+    static TraceContext parent(Payload payload) {
+        var traceparent = entry(payload, TraceContext.MIME_TYPE);
+        return traceparent != null ? TraceContext.parse(traceparent.toString(StandardCharsets.US_ASCII)) : null;
+    }
+
+    private static ByteBuf entry(Payload payload, String mimeType) {
+        if (!payload.hasMetadata()) {
+            return null;
+        }
+        for (var entry : new CompositeMetadata(payload.sliceMetadata(), false)) {
+            if (mimeType.equals(entry.getMimeType())) {
+                return entry.getContent();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.tracing;
+
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.util.RSocketProxy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Continues the trace in each request's {@link TraceContext#MIME_TYPE} metadata entry
+ * with a span named after its route.
+ */
+public class ServerTracingRSocket extends RSocketProxy {
+
+    private final Tracer tracer;
+
+    public ServerTracingRSocket(RSocket source, Tracer tracer) {
+        super(source);
+        this.tracer = tracer;
+    }
+
+    @Override
+    public Mono<Void> fireAndForget(Payload payload) {
+        var name = RSocketMetadata.spanName(payload);
+        var parent = RSocketMetadata.parent(payload);
+        return super.fireAndForget(payload).transform(this.tracer.server(name, parent));
+    }
+
+    @Override
+    public Mono<Payload> requestResponse(Payload payload) {
+        var name = RSocketMetadata.spanName(payload);
+        var parent = RSocketMetadata.parent(payload);
+        return super.requestResponse(payload).transform(this.tracer.server(name, parent));
+    }
+
+    @Override
+    public Flux<Payload> requestStream(Payload payload) {
+        var name = RSocketMetadata.spanName(payload);
+        var parent = RSocketMetadata.parent(payload);
+        return super.requestStream(payload).transform(this.tracer.serverStream(name, parent));
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.tracing;
+
+import reactor.core.publisher.SignalType;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One timed operation. {@link #latencyNanos()} is what the sampler judges: the whole
+ * duration, or for a stream the time to its first element, so that long-lived streams
+ * don't all count as slow.
+ */
+class Span {
+
+    final TraceContext context;
+
+    final String parentId;
+
+    final String name;
+
+    final boolean stream;
+
+    final long startMicros = System.currentTimeMillis() * 1000;
+
+    final long startNanos = System.nanoTime();
+
+    volatile long firstNanos;
+
+    volatile long endNanos;
+
+    volatile String error;
+
+    volatile SignalType signal;
+
+    Span(TraceContext parent, boolean remoteParent, String name, boolean stream) {
+        var spanId = TraceContext.newId(1);
+        var traceId = parent != null ? parent.getTraceId() : TraceContext.newId(2);
+        var localRootId = parent != null && !remoteParent ? parent.getLocalRootId() : spanId;
+        this.context = new TraceContext(traceId, spanId, localRootId);
+        this.parentId = parent != null ? parent.getSpanId() : null;
+        this.name = name;
+        this.stream = stream;
+    }
+
+    boolean isLocalRoot() {
+        return this.context.getSpanId().equals(this.context.getLocalRootId());
+    }
+
+    void next() {
+        if (this.firstNanos == 0) {
+            this.firstNanos = System.nanoTime();
+        }
+    }
+
+    long latencyNanos() {
+        if (!this.stream) {
+            return this.endNanos - this.startNanos;
+        }
+        if (this.firstNanos != 0) {
+            return this.firstNanos - this.startNanos;
+        }
+        return this.signal == SignalType.CANCEL ? 0 : this.endNanos - this.startNanos;
+    }
+
+    Map<String, Object> toMap(String service) {
+        var map = new LinkedHashMap<String, Object>();
+        map.put("traceId", this.context.getTraceId());
+        map.put("spanId", this.context.getSpanId());
+        map.put("parentId", this.parentId);
+        map.put("service", service);
+        map.put("name", this.name);
+        map.put("start", this.startMicros);
+        map.put("duration", (this.endNanos - this.startNanos) / 1000);
+        if (this.stream && this.firstNanos != 0) {
+            map.put("firstElement", (this.firstNanos - this.startNanos) / 1000);
+        }
+        map.put("signal", String.valueOf(this.signal));
+        map.put("error", this.error);
+        return map;
+    }
+}
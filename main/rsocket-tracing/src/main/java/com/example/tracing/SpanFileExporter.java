@@ -0,0 +1,53 @@
+package com.example.tracing;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Appends kept traces to {@link TracingProperties#getExport()}, off the thread that
+ * finished them.
+ */
+@Log4j2
+@RequiredArgsConstructor
+class SpanFileExporter implements Consumer<List<Span>> {
+
+    private final TracingProperties properties;
+
+    private final ObjectMapper objectMapper;
+
+    private final String service;
+
+    @Override
+    public void accept(List<Span> spans) {
+        var lines = new StringBuilder();
+        for (var span : spans) {
+            try {
+                lines.append(this.objectMapper.writeValueAsString(span.toMap(this.service))).append('\n');
+            }
+            catch (JsonProcessingException e) {
+                log.warn("could not serialize span " + span.name + ": " + e.getMessage());
+            }
+        }
+        Schedulers.boundedElastic().schedule(() -> write(lines.toString()));
+    }
+
+    private synchronized void write(String lines) {
+        try {
+            Files.writeString(Path.of(this.properties.getExport()), lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        catch (IOException e) {
+            log.warn("could not export trace to " + this.properties.getExport() + ": " + e.getMessage());
+        }
+    }
+}
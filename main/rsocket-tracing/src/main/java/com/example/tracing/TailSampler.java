@@ -0,0 +1,91 @@
+package com.example.tracing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Holds the finished spans of each trace in this process until the span that began it
+ * here and every span started under it have finished, then keeps the lot if any of them
+ * was slow or failed and drops it otherwise. Children are counted rather than assumed to
+ * finish first: an operator's final callback runs only after its signal has gone
+ * downstream, and a cancellation reaches the parent before its children. Each trace
+ * keeps its own count, so spans of different traces never wait on each other. The
+ * decision is local: the edge and the service each keep their own part of a trace when
+ * it was slow or failed on their side.
+ */
+class TailSampler {
+
+    private final Map<String, PendingTrace> pending = new ConcurrentHashMap<>();
+
+    private final TracingProperties properties;
+
+    private final Consumer<List<Span>> exporter;
+
+    TailSampler(TracingProperties properties, Consumer<List<Span>> exporter) {
+        this.properties = properties;
+        this.exporter = exporter;
+    }
+
+    /**
+     * Only the span that begins a trace here opens it, so a span started after its trace
+     * was decided doesn't leave one behind that nothing would ever finish.
+     */
+    void started(Span span) {
+        if (span.isLocalRoot()) {
+            if (this.pending.size() < this.properties.getMaxPendingTraces()) {
+                this.pending.put(span.context.getLocalRootId(), new PendingTrace());
+            }
+            return;
+        }
+        var trace = this.pending.get(span.context.getLocalRootId());
+        if (trace != null) {
+            trace.open.incrementAndGet();
+        }
+    }
+
+    void finished(Span span) {
+        var localRootId = span.context.getLocalRootId();
+        var trace = this.pending.get(localRootId);
+        if (trace == null) {
+            if (span.isLocalRoot()) {
+                judge(List.of(span));
+            }
+            return;
+        }
+        if (span.isLocalRoot() || trace.size.incrementAndGet() <= this.properties.getMaxSpansPerTrace()) {
+            trace.spans.add(span);
+        }
+        if (trace.open.decrementAndGet() == 0 && this.pending.remove(localRootId, trace)) {
+            judge(new ArrayList<>(trace.spans));
+        }
+    }
+
+    private void judge(List<Span> spans) {
+        var threshold = this.properties.getSlowThreshold().toNanos();
+        for (var span : spans) {
+            if (span.error != null || span.latencyNanos() >= threshold) {
+                this.exporter.accept(spans);
+                return;
+            }
+        }
+    }
+
+    /**
+     * The local root counts as open from the start, and children add themselves as they
+     * start, so the count reaches zero once, when the last of them finishes.
+     */
+    private static class PendingTrace {
+
+        private final Queue<Span> spans = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger open = new AtomicInteger(1);
+
+        private final AtomicInteger size = new AtomicInteger();
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.tracing;
+
+import lombok.Value;
+import org.springframework.util.StringUtils;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A span's place in a trace, propagated between processes as a W3C
+ * {@code traceparent}: in the {@link #HEADER} header over HTTP, and as a
+ * {@link #MIME_TYPE} entry of the composite metadata over RSocket.
+ */
+@Value
+public class TraceContext {
+
+    public static final String HEADER = "traceparent";
+
+    public static final String MIME_TYPE = "message/x.rsocket.traceparent.v0";
+
+    String traceId;
+
+    String spanId;
+
+    /**
+     * The span that began this process's part of the trace; not propagated.
+     */
+    String localRootId;
+
+    public static TraceContext parse(String traceparent) {
+        if (!StringUtils.hasText(traceparent)) {
+            return null;
+        }
+        var parts = traceparent.trim().split("-");
+        if (parts.length < 4 || parts[1].length() != 32 || parts[2].length() != 16) {
+            return null;
+        }
+        return new TraceContext(parts[1], parts[2], null);
+    }
+
+    static String newId(int longs) {
+        var id = new StringBuilder(longs * 16);
+        for (var i = 0; i < longs; i++) {
+            id.append(String.format("%016x", ThreadLocalRandom.current().nextLong()));
+        }
+        return id.toString();
+    }
+
+    public String traceparent() {
+        return "00-" + this.traceId + "-" + this.spanId + "-01";
+    }
+}
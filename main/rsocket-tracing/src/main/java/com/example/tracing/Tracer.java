@@ -0,0 +1,142 @@
+package com.example.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.util.context.Context;
+
+import java.util.function.Function;
+
+/**
+ * Starts spans around reactive operations, parenting them on the span in the
+ * subscriber context, and hands each finished span to the {@link TailSampler}.
+ */
+public class Tracer {
+
+    private final TracingProperties properties;
+
+    private final TailSampler sampler;
+
+    /**
+     * @param service how exported spans name this process
+     */
+    public Tracer(TracingProperties properties, ObjectMapper objectMapper, String service) {
+        this.properties = properties;
+        this.sampler = new TailSampler(properties, new SpanFileExporter(properties, objectMapper, service));
+    }
+
+    /**
+     * Wraps every method of the repository that returns a publisher in a span.
+     */
+    public static <T> T tracedQueries(T repository, Class<T> type, ObjectProvider<Tracer> tracer) {
+        var proxy = new ProxyFactory();
+        proxy.setTarget(repository);
+        proxy.addInterface(type);
+        proxy.addAdvice((MethodInterceptor) invocation -> {
+            var result = invocation.proceed();
+            var name = type.getSimpleName() + "." + invocation.getMethod().getName();
+            if (result instanceof Mono) {
+                return ((Mono<?>) result).transform(tracer.getObject().span(name));
+            }
+            if (result instanceof Flux) {
+                return ((Flux<?>) result).transform(tracer.getObject().spans(name));
+            }
+            return result;
+        });
+        return type.cast(proxy.getProxy());
+    }
+
+    public <T> Function<Mono<T>, Mono<T>> span(String name) {
+        return source -> trace(source, name, null);
+    }
+
+    public <T> Function<Flux<T>, Flux<T>> spans(String name) {
+        return source -> trace(source, name, null, false);
+    }
+
+    public <T> Function<Flux<T>, Flux<T>> stream(String name) {
+        return source -> trace(source, name, null, true);
+    }
+
+    /**
+     * A span that continues a trace from another process, or starts one.
+     */
+    public <T> Function<Mono<T>, Mono<T>> server(String name, TraceContext remoteParent) {
+        return source -> trace(source, name, remoteParent);
+    }
+
+    public <T> Function<Flux<T>, Flux<T>> serverStream(String name, TraceContext remoteParent) {
+        return source -> trace(source, name, remoteParent, true);
+    }
+
+    /**
+     * A span around a call to another process, which {@code call} makes with the span's
+     * context to propagate, or with null when tracing is off.
+     */
+    public <T> Mono<T> client(String name, Function<TraceContext, Mono<T>> call) {
+        return trace(call, name, null);
+    }
+
+    public <T> Flux<T> clientStream(String name, Function<TraceContext, Flux<T>> call) {
+        return trace(call, name, null, true);
+    }
+
+    private <T> Mono<T> trace(Mono<T> source, String name, TraceContext remoteParent) {
+        return trace(context -> source, name, remoteParent);
+    }
+
+    private <T> Flux<T> trace(Flux<T> source, String name, TraceContext remoteParent, boolean stream) {
+        return trace(context -> source, name, remoteParent, stream);
+    }
+
+    private <T> Mono<T> trace(Function<TraceContext, Mono<T>> source, String name, TraceContext remoteParent) {
+        if (!this.properties.isEnabled()) {
+            return source.apply(null);
+        }
+        return Mono.deferWithContext(context -> {
+            var span = start(context, name, remoteParent, false);
+            return source
+                    .apply(span.context)
+                    .doOnNext(value -> span.next())
+                    .doOnError(error -> failed(span, error))
+                    .doFinally(signal -> finished(span, signal))
+                    .subscriberContext(inner -> inner.put(TraceContext.class, span.context));
+        });
+    }
+
+    private <T> Flux<T> trace(Function<TraceContext, Flux<T>> source, String name, TraceContext remoteParent, boolean stream) {
+        if (!this.properties.isEnabled()) {
+            return source.apply(null);
+        }
+        return Flux.deferWithContext(context -> {
+            var span = start(context, name, remoteParent, stream);
+            return source
+                    .apply(span.context)
+                    .doOnNext(value -> span.next())
+                    .doOnError(error -> failed(span, error))
+                    .doFinally(signal -> finished(span, signal))
+                    .subscriberContext(inner -> inner.put(TraceContext.class, span.context));
+        });
+    }
+
+    private Span start(Context context, String name, TraceContext remoteParent, boolean stream) {
+        var parent = remoteParent != null ? remoteParent : context.getOrDefault(TraceContext.class, null);
+        var span = new Span(parent, remoteParent != null, name, stream);
+        this.sampler.started(span);
+        return span;
+    }
+
+    private static void failed(Span span, Throwable error) {
+        span.error = error.getClass().getName() + ": " + error.getMessage();
+    }
+
+    private void finished(Span span, SignalType signal) {
+        span.signal = signal;
+        span.endNanos = System.nanoTime();
+        this.sampler.finished(span);
+    }
+}
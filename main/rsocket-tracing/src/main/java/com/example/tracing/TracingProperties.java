@@ -0,0 +1,38 @@
+package com.example.tracing;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * Bound by each application under its own prefix, {@code service.tracing} or
+ * {@code edge.tracing}.
+ */
+@Data
+public class TracingProperties {
+
+    /**
+     * Tracing costs a span per operation and a metadata entry per request, so it is only
+     * on where it is asked for.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Traces with a span at least this slow are kept, as are traces with an error; the
+     * rest are dropped. Streams are judged by the time to their first element.
+     */
+    private Duration slowThreshold = Duration.ofMillis(100);
+
+    /**
+     * Kept traces are appended to this file, one span per line as JSON.
+     */
+    private String export = "traces.jsonl";
+
+    /**
+     * Traces that begin while this many are still open are judged by their first span
+     * alone.
+     */
+    private int maxPendingTraces = 10_000;
+
+    private int maxSpansPerTrace = 1_000;
+}
@@ -0,0 +1,31 @@
+package com.example.tracing;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.Ordered;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Continues the trace in each request's {@link TraceContext#HEADER} header, or starts
+ * one, with a span named after its method and path. Runs ahead of every other filter so
+ * that their time is part of the span.
+ */
+@RequiredArgsConstructor
+public class TracingWebFilter implements WebFilter, Ordered {
+
+    private final Tracer tracer;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        var request = exchange.getRequest();
+        var parent = TraceContext.parse(request.getHeaders().getFirst(TraceContext.HEADER));
+        return chain.filter(exchange).transform(this.tracer.server(request.getMethodValue() + " " + request.getPath().value(), parent));
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.tracing;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TailSamplerTests {
+
+	private final List<List<Span>> exported = new CopyOnWriteArrayList<>();
+
+	@Test
+	void waitsForChildrenThatFinishAfterTheRoot() {
+		var sampler = sampler(Duration.ZERO);
+		var root = start(sampler, null, "root");
+		var child = start(sampler, root, "child");
+		finish(sampler, root);
+		assertThat(this.exported).isEmpty();
+		finish(sampler, child);
+		assertThat(this.exported).hasSize(1);
+		assertThat(this.exported.get(0)).containsExactlyInAnyOrder(root, child);
+	}
+
+	@Test
+	void dropsTracesThatWereFastAndFine() {
+		var sampler = sampler(Duration.ofHours(1));
+		var root = start(sampler, null, "root");
+		finish(sampler, start(sampler, root, "child"));
+		finish(sampler, root);
+		assertThat(this.exported).isEmpty();
+	}
+
+	@Test
+	void exportsATraceOnceWhenItsSpansFinishOnManyThreads() throws InterruptedException {
+		var sampler = sampler(Duration.ZERO);
+		var root = start(sampler, null, "root");
+		var children = new ArrayList<Span>();
+		for (var i = 0; i < 500; i++) {
+			children.add(start(sampler, root, "child"));
+		}
+		var executor = Executors.newFixedThreadPool(8);
+		children.forEach(child -> executor.execute(() -> finish(sampler, child)));
+		executor.execute(() -> finish(sampler, root));
+		executor.shutdown();
+		assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(this.exported).hasSize(1);
+		assertThat(this.exported.get(0)).hasSize(501);
+	}
+
+	@Test
+	void ignoresSpansStartedAfterTheirTraceWasDecided() {
+		var sampler = sampler(Duration.ZERO);
+		var root = start(sampler, null, "root");
+		finish(sampler, root);
+		finish(sampler, start(sampler, root, "late"));
+		assertThat(this.exported).hasSize(1);
+		assertThat(this.exported.get(0)).containsExactly(root);
+	}
+
+	private TailSampler sampler(Duration slowThreshold) {
+		var properties = new TracingProperties();
+		properties.setSlowThreshold(slowThreshold);
+		return new TailSampler(properties, this.exported::add);
+	}
+
+	private static void finish(TailSampler sampler, Span span) {
+		span.endNanos = System.nanoTime();
+		sampler.finished(span);
+	}
+
+	private static Span start(TailSampler sampler, Span parent, String name) {
+		var span = new Span(parent != null ? parent.context : null, false, name, false);
+		sampler.started(span);
+		return span;
+	}
+
+}
@@ -0,0 +1,52 @@
+#!/usr/bin/env bash
+#
+# Compares time-to-first-response and resident memory of the JVM and native builds
+# of a module. Build both first:
+#
+#   mvn -f rsocket-service/pom.xml package && mvn -f rsocket-service/pom.xml -Pnative package
+#
+# Usage: ./startup-comparison.sh <module> <http-port> [runs]
+#   ./startup-comparison.sh rsocket-service 8080 5
+#   ./startup-comparison.sh rsocket-edge 9090 5
+
+set -euo pipefail
+
+module=${1:?module directory, e.g. rsocket-service}
+port=${2:?HTTP port the module listens on}
+runs=${3:-5}
+
+cd "$(dirname "$0")/$module"
+
+jar=$(ls target/*-SNAPSHOT.jar)
+binary=target/$(basename "$module" | sed 's/^rsocket-//')
+
+now_ms() {
+  date +%s%3N
+}
+
+measure() {
+  local label=$1
+  shift
+  for run in $(seq 1 "$runs"); do
+    local start
+    start=$(now_ms)
+    "$@" > "target/startup-$label-$run.log" 2>&1 &
+    local pid=$!
+    until curl --silent --output /dev/null "http://localhost:$port/"; do
+      if ! kill -0 "$pid" 2> /dev/null; then
+        echo "$label run $run exited early, see target/startup-$label-$run.log" >&2
+        exit 1
+      fi
+      sleep 0.01
+    done
+    local elapsed=$(($(now_ms) - start))
+    local rss
+    rss=$(ps -o rss= -p "$pid" | tr -d ' ')
+    printf '%-8s run %-3s %6d ms %8d KB RSS\n' "$label" "$run" "$elapsed" "$rss"
+    kill "$pid"
+    wait "$pid" 2> /dev/null || true
+  done
+}
+
+measure jvm java -jar "$jar"
+measure native "$binary"